@@ -0,0 +1,99 @@
+package querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.QuerydslApplication;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+import querydsl.repository.UserJpaRepository;
+import querydsl.repository.UserRepository;
+import querydsl.repository.UsernameNgramIndex;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 내장 H2 에 데이터를 넣고 애플리케이션 컨텍스트를 띄워 두는 공용 상태
+ * 같은 조건을 반복하므로 카운트 캐시와 single-flight 를 끄고 매번 쿼리까지 가는 비용을 잰다
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    @Param({"10000"})
+    public int userCount;
+
+    @Param({"10"})
+    public int teamCount;
+
+    ConfigurableApplicationContext context;
+    UserRepository userRepository;
+    UserJpaRepository userJpaRepository;
+    JPAQueryFactory queryFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .run("--spring.profiles.active=bench",
+                        "--spring.main.web-application-type=none",
+                        "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "--querydsl.search.count-cache.ttl=0",
+                        "--querydsl.search.single-flight.enabled=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--logging.level.org.hibernate.type=warn");
+        userRepository = context.getBean(UserRepository.class);
+        userJpaRepository = context.getBean(UserJpaRepository.class);
+        queryFactory = context.getBean(JPAQueryFactory.class);
+        seed();
+        awaitNgramIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 색인은 기동 후 별도 스레드에서 만들어지므로 준비될 때까지 기다린다 (seed 는 커밋 후 리스너로 들어간다)
+     */
+    private void awaitNgramIndex() {
+        UsernameNgramIndex index = context.getBean(UsernameNgramIndex.class);
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (!index.isReady()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("회원명 n-gram 색인이 만들어지지 않았습니다.");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private void seed() {
+        EntityManager em = context.getBean(EntityManager.class);
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            Team[] teams = new Team[teamCount];
+            for (int i = 0; i < teamCount; i++) {
+                teams[i] = new Team("team" + i);
+                em.persist(teams[i]);
+            }
+            for (int i = 0; i < userCount; i++) {
+                em.persist(new User("member" + i, i % 100, teams[i % teamCount]));
+                if (i % 1000 == 0) {
+                    em.flush();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import querydsl.dto.MemberTeamDto;
+import querydsl.dto.MemberTeamDtoMapper;
+import querydsl.dto.QMemberTeamDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static querydsl.entity.QTeam.team;
+import static querydsl.entity.QUser.user;
+
+/**
+ * DTO 조회 방식 비교 (QueryDslBasicTest 의 findDtoBy* 와 같은 방식)
+ * 같은 행 수를 읽으므로 차이는 결과 매핑 비용이다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProjectionBenchmark {
+
+    private static final long ROWS = 1000;
+
+    @Benchmark
+    public List<MemberTeamDto> bean(BenchmarkContext ctx) {
+        return ctx.queryFactory
+                .select(Projections.bean(MemberTeamDto.class,
+                        user.id.as("memberId"),
+                        user.username,
+                        user.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(user)
+                .leftJoin(user.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> fields(BenchmarkContext ctx) {
+        return ctx.queryFactory
+                .select(Projections.fields(MemberTeamDto.class,
+                        user.id.as("memberId"),
+                        user.username,
+                        user.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(user)
+                .leftJoin(user.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> constructor(BenchmarkContext ctx) {
+        return ctx.queryFactory
+                .select(Projections.constructor(MemberTeamDto.class,
+                        user.id,
+                        user.username,
+                        user.age,
+                        team.id,
+                        team.name))
+                .from(user)
+                .leftJoin(user.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> queryProjection(BenchmarkContext ctx) {
+        return ctx.queryFactory
+                .select(new QMemberTeamDto(
+                        user.id,
+                        user.username,
+                        user.age,
+                        team.id,
+                        team.name))
+                .from(user)
+                .leftJoin(user.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> mapper(BenchmarkContext ctx) {
+        return ctx.queryFactory
+                .select(new MemberTeamDtoMapper(
+                        user.id,
+                        user.username,
+                        user.age,
+                        team.id,
+                        team.name))
+                .from(user)
+                .leftJoin(user.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+}
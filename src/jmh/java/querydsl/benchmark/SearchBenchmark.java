@@ -0,0 +1,124 @@
+package querydsl.benchmark;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.MemberTeamDto;
+import querydsl.dto.MemberTeamDtoMapper;
+import querydsl.dto.QMemberTeamDto;
+import querydsl.dto.UsernameMatch;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.StringUtils.hasText;
+import static querydsl.entity.QTeam.team;
+import static querydsl.entity.QUser.user;
+
+/**
+ * 검색 경로 비교
+ * - UserRepositoryImpl.search
+ * - searchPageSimple vs searchPageComplex
+ * - 요청마다 QueryDSL 로 만드는 쿼리(BooleanBuilder, where 파라미터) vs 미리 만들어 둔 모양별 쿼리 (모두 같은 DTO 조회)
+ * - 회원명 부분 일치: n-gram 색인 vs like '%x%' (회원 수를 키워 보려면 -p userCount=1000000)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchBenchmark {
+
+    private static final PageRequest DEEP_PAGE = PageRequest.of(50, 20);
+    private static final String CONTAINS_TERM = "ber123"; // member123, member1230 ~ member1239, ...
+
+    private static MemberSearchCondition condition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(60);
+        return condition;
+    }
+
+    private static MemberSearchCondition contains() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(CONTAINS_TERM);
+        condition.setUsernameMatch(UsernameMatch.CONTAINS);
+        return condition;
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search(BenchmarkContext ctx) {
+        return ctx.userRepository.search(condition());
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple(BenchmarkContext ctx) {
+        return ctx.userRepository.searchPageSimple(new MemberSearchCondition(), DEEP_PAGE);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex(BenchmarkContext ctx) {
+        return ctx.userRepository.searchPageComplex(new MemberSearchCondition(), DEEP_PAGE);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder(BenchmarkContext ctx) {
+        return ctx.userJpaRepository.searchByBuilder(condition());
+    }
+
+    //search 와 같은 조건을 요청마다 where 파라미터로 만든다
+    @Benchmark
+    public List<MemberTeamDto> searchByWhereParam(BenchmarkContext ctx) {
+        MemberSearchCondition condition = condition();
+        return ctx.queryFactory
+                .select(new MemberTeamDtoMapper(user.id, user.username, user.age, team.id, team.name))
+                .from(user)
+                .leftJoin(user.team, team)
+                .where(usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchPrecompiled(BenchmarkContext ctx) {
+        return ctx.userJpaRepository.search(condition());
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchContainsIndexed(BenchmarkContext ctx) {
+        return ctx.userRepository.search(contains());
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchContainsLike(BenchmarkContext ctx) {
+        return ctx.queryFactory
+                .select(new QMemberTeamDto(user.id, user.username, user.age, team.id, team.name))
+                .from(user)
+                .leftJoin(user.team, team)
+                .where(user.username.contains(CONTAINS_TERM))
+                .fetch();
+    }
+
+    private static BooleanExpression usernameMatches(MemberSearchCondition condition) {
+        return hasText(condition.getUsername())
+                ? UsernameMatch.of(condition).on(user.username, condition.getUsername())
+                : null;
+    }
+
+    private static BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private static BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? user.age.goe(ageGoe) : null;
+    }
+
+    private static BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? user.age.loe(ageLoe) : null;
+    }
+}
@@ -0,0 +1,190 @@
+package querydsl.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * open loop 부하 발생기
+ *
+ * i 번째 요청은 시작 시각 + i / rate 에 보낸다. 앞 요청의 응답을 기다리지 않으므로 서버가 느려져도 보내는 속도는 그대로다.
+ * 지연 시간은 실제로 보낸 시각이 아니라 "보냈어야 할 시각"부터 잰다. 발송이 밀린 시간까지 포함해야
+ * 느린 구간이 측정에서 빠지는 것(coordinated omission)을 막을 수 있다.
+ * 같은 이유로 측정 구간의 요청은 빠짐없이 센다. maxInFlight 때문에 보내지 못한 요청(dropped)은 지연 시간 없이 오류로,
+ * 끝난 뒤 drain 시간 안에 응답이 오지 않은 요청(unfinished)은 그때까지 기다린 시간(now - intended)을 지연 시간으로 넣고 오류로 센다.
+ */
+class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final long DRAIN_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final LoadTestConfig config;
+    private final String baseUrl;
+    private final RequestMix mix;
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+    private final Stats total = new Stats();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Long, Sent> pending = new ConcurrentHashMap<>(); // 응답을 아직 기록하지 않은 측정 구간 요청
+
+    LoadGenerator(LoadTestConfig config, String baseUrl) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.mix = new RequestMix(config);
+        for (String endpoint : config.mix.keySet()) {
+            stats.put(endpoint, new Stats());
+        }
+    }
+
+    void run() throws InterruptedException {
+        ExecutorService responseExecutor = Executors.newFixedThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(responseExecutor)
+                .build();
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / config.rate);
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup.toNanos();
+        long end = measureFrom + config.duration.toNanos();
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            RequestMix.Request request = mix.next();
+            boolean measured = intended >= measureFrom;
+            if (inFlight.get() >= config.maxInFlight) {
+                if (measured) {
+                    stats.get(request.endpoint).drop();
+                    total.drop();
+                }
+                continue;
+            }
+            send(client, request, i, intended, measured);
+        }
+
+        // 측정 구간에 보낸 요청의 응답을 기다린다
+        long deadline = System.nanoTime() + DRAIN_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // 아직 오지 않은 응답은 지금까지의 대기 시간으로 기록한다. 늦게 온 응답은 pending 에서 못 찾으므로 두 번 세지 않는다.
+        long now = System.nanoTime();
+        for (Long sequence : pending.keySet()) {
+            Sent sent = pending.remove(sequence);
+            if (sent != null) {
+                stats.get(sent.endpoint).unfinished(now - sent.intended);
+                total.unfinished(now - sent.intended);
+            }
+        }
+        responseExecutor.shutdownNow();
+    }
+
+    private void send(HttpClient client, RequestMix.Request request, long sequence, long intended, boolean measured) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUrl + request.path))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        inFlight.incrementAndGet();
+        if (measured) {
+            pending.put(sequence, new Sent(request.endpoint, intended));
+        }
+        client.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    inFlight.decrementAndGet();
+                    if (!measured || pending.remove(sequence) == null) {
+                        return;
+                    }
+                    long latency = System.nanoTime() - intended;
+                    boolean ok = error == null && response.statusCode() < 400;
+                    stats.get(request.endpoint).record(latency, ok);
+                    total.record(latency, ok);
+                });
+    }
+
+    void printReport(String label) {
+        double seconds = config.duration.toNanos() / 1e9;
+        System.out.println();
+        System.out.println("== load test [" + label + "]: " + config);
+        System.out.printf("%-8s %10s %8s %8s %10s %10s %10s %10s %10s %10s%n", "endpoint", "requests", "errors",
+                "dropped", "unfinished", "req/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        stats.forEach((endpoint, s) -> print(endpoint, s, seconds));
+        print("total", total, seconds);
+        System.out.println("errors 는 dropped(maxInFlight " + config.maxInFlight + " 초과로 보내지 않음), unfinished("
+                + TimeUnit.NANOSECONDS.toSeconds(DRAIN_NANOS) + "초 안에 응답 없음)를 포함한다.");
+    }
+
+    private static void print(String name, Stats s, double seconds) {
+        Histogram h = s.histogram;
+        long requests = h.getTotalCount() + s.dropped.sum();
+        System.out.printf("%-8s %10d %8d %8d %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name, requests, s.errors.sum(), s.dropped.sum(), s.unfinished.sum(), requests / seconds,
+                millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static class Stats {
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder unfinished = new LongAdder();
+
+        void record(long latencyNanos, boolean ok) {
+            histogram.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        /**
+         * 보내지 않았으므로 지연 시간은 없다
+         */
+        void drop() {
+            dropped.increment();
+            errors.increment();
+        }
+
+        /**
+         * 실제 지연 시간은 이보다 길다
+         */
+        void unfinished(long waitedNanos) {
+            unfinished.increment();
+            record(waitedNanos, false);
+        }
+    }
+
+    private static class Sent {
+        private final String endpoint;
+        private final long intended;
+
+        private Sent(String endpoint, long intended) {
+            this.endpoint = endpoint;
+            this.intended = intended;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package querydsl.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 부하 테스트 설정, key=value 인자로 받는다.
+ * 예) ./gradlew loadTest -PloadTestArgs="rate=500 duration=60s mix=v1=1,v3=4 maxPage=100"
+ *     ./gradlew loadTest -PloadTestArgs="threads=both" (요청 스레드 방식별로 한 번씩, JDK 21 이상)
+ */
+class LoadTestConfig {
+
+    final String url;          // 비어 있으면 내장 H2 로 애플리케이션을 직접 띄운다
+    final int users;           // 직접 띄울 때 만들 회원 수 (querydsl.init.user-count)
+    final int teams;           // 직접 띄울 때 만들 팀 수 (querydsl.init.team-count)
+    final double rate;         // 초당 요청 수, 응답과 상관없이 이 간격으로 보낸다 (open loop)
+    final Duration warmup;
+    final Duration duration;
+    final Map<String, Integer> mix; // 엔드포인트별 가중치 (v1, v2, v3)
+    final double conditionRate;     // 조건(username, teamName, ageGoe, ageLoe)마다 넣을 확률
+    final int maxPage;              // v2, v3 페이지 번호 상한 (0 ~ maxPage)
+    final int pageSize;
+    final int maxInFlight;          // 이보다 많이 밀리면 보내지 않고 dropped 로 센다
+    final long seed;                // 같은 seed 면 같은 요청 순서
+    final Duration seedTimeout;     // 직접 띄울 때 데이터 준비를 기다리는 최대 시간
+    final List<String> threads;     // 직접 띄울 때 요청 스레드 (platform, virtual), both 면 같은 seed 로 차례로 돌린다
+
+    LoadTestConfig(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("key=value 형식이어야 합니다: " + arg);
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        this.url = values.getOrDefault("url", "");
+        this.users = Integer.parseInt(values.getOrDefault("users", "100000"));
+        this.teams = Integer.parseInt(values.getOrDefault("teams", "10"));
+        this.rate = Double.parseDouble(values.getOrDefault("rate", "200"));
+        this.warmup = DurationStyle.detectAndParse(values.getOrDefault("warmup", "10s"));
+        this.duration = DurationStyle.detectAndParse(values.getOrDefault("duration", "30s"));
+        this.mix = parseMix(values.getOrDefault("mix", "v1=1,v2=1,v3=1"));
+        this.conditionRate = Double.parseDouble(values.getOrDefault("conditionRate", "0.5"));
+        this.maxPage = Integer.parseInt(values.getOrDefault("maxPage", "50"));
+        this.pageSize = Integer.parseInt(values.getOrDefault("pageSize", "20"));
+        this.maxInFlight = Integer.parseInt(values.getOrDefault("maxInFlight", "10000"));
+        this.seed = Long.parseLong(values.getOrDefault("seed", "42"));
+        this.seedTimeout = DurationStyle.detectAndParse(values.getOrDefault("seedTimeout", "10m"));
+        this.threads = parseThreads(values.getOrDefault("threads", "platform"));
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate 는 0 보다 커야 합니다.");
+        }
+        if (!url.isEmpty() && threads.size() > 1) {
+            throw new IllegalArgumentException("threads=both 는 url 없이 직접 띄울 때만 쓸 수 있습니다.");
+        }
+    }
+
+    private static List<String> parseThreads(String threads) {
+        switch (threads) {
+            case "platform":
+            case "virtual":
+                return List.of(threads);
+            case "both":
+                return List.of("platform", "virtual");
+            default:
+                throw new IllegalArgumentException("threads 는 platform, virtual, both 중 하나여야 합니다: " + threads);
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] kv = entry.split("=");
+            String endpoint = kv[0].trim();
+            if (!RequestMix.ENDPOINTS.containsKey(endpoint)) {
+                throw new IllegalArgumentException("알 수 없는 엔드포인트: " + endpoint);
+            }
+            weights.put(endpoint, kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1);
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "url=" + (url.isEmpty() ? "(embedded)" : url) + ", users=" + users + ", teams=" + teams
+                + ", rate=" + rate + "/s, warmup=" + warmup + ", duration=" + duration + ", mix=" + mix
+                + ", conditionRate=" + conditionRate + ", maxPage=" + maxPage + ", pageSize=" + pageSize
+                + ", seed=" + seed;
+    }
+}
@@ -0,0 +1,75 @@
+package querydsl.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import querydsl.QuerydslApplication;
+import querydsl.repository.UserRepository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 부하 테스트 진입점 (./gradlew loadTest)
+ *
+ * url 을 주지 않으면 내장 H2(메모리)로 애플리케이션을 띄우고 InitMember 로 users, teams 만큼 데이터를 만든 뒤 시작한다.
+ * 외부 DB 나 서비스 없이 같은 설정, 같은 seed 면 같은 요청 순서로 돌기 때문에 검색 방식끼리 비교할 수 있다.
+ * threads=both 면 톰캣 요청 스레드(platform)와 가상 스레드(virtual, DbConcurrencyLimitFilter 포함)로
+ * 애플리케이션을 한 번씩 새로 띄워 같은 부하를 주고, 결과는 끝에 이어서 출력한다.
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig(args);
+        if (!config.url.isEmpty()) {
+            LoadGenerator generator = new LoadGenerator(config, config.url);
+            generator.run();
+            generator.printReport("external");
+            return;
+        }
+        Map<String, LoadGenerator> results = new LinkedHashMap<>();
+        for (String threads : config.threads) {
+            try (ConfigurableApplicationContext context = start(config, threads)) {
+                LoadGenerator generator = new LoadGenerator(config,
+                        "http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+                generator.run();
+                results.put(threads, generator);
+            }
+        }
+        results.forEach((threads, generator) -> generator.printReport("threads=" + threads));
+    }
+
+    /**
+     * 방식마다 메모리 DB 를 따로 써서 앞 실행의 데이터가 남지 않게 한다
+     */
+    private static ConfigurableApplicationContext start(LoadTestConfig config, String threads)
+            throws InterruptedException {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .run("--spring.profiles.active=local",
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest-" + threads + ";DB_CLOSE_DELAY=-1",
+                        "--querydsl.web.virtual-threads.enabled=" + threads.equals("virtual"),
+                        "--spring.jpa.properties.hibernate.show_ddl=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--logging.level.org.hibernate.type=warn",
+                        "--querydsl.init.user-count=" + config.users,
+                        "--querydsl.init.team-count=" + config.teams);
+
+        // InitMember 는 기동 후 별도 스레드에서 넣으므로 다 들어올 때까지 기다린다 (실패하면 끝나지 않으므로 seedTimeout 까지만)
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        long started = System.currentTimeMillis();
+        long deadline = started + config.seedTimeout.toMillis();
+        long count;
+        while ((count = userRepository.count()) < config.users) {
+            if (System.currentTimeMillis() >= deadline) {
+                context.close();
+                throw new IllegalStateException("데이터 준비 시간 초과. seedTimeout=" + config.seedTimeout
+                        + ", users=" + count + "/" + config.users + " (InitMember 로그 확인)");
+            }
+            Thread.sleep(500);
+        }
+        System.out.println("데이터 준비 완료. threads=" + threads + ", users=" + config.users + ", teams=" + config.teams
+                + ", " + (System.currentTimeMillis() - started) + "ms");
+        return context;
+    }
+}
@@ -0,0 +1,90 @@
+package querydsl.loadtest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 가중치에 따라 엔드포인트를 고르고 MemberSearchCondition 파라미터와 페이지를 무작위로 붙인다.
+ * 값은 InitMember 가 만드는 데이터(member0.., teamA.., 나이 0~99)에 맞춘다.
+ */
+class RequestMix {
+
+    static final Map<String, String> ENDPOINTS = Map.of(
+            "v1", "/v1/users",
+            "v2", "/v2/members",
+            "v3", "/v3/members");
+
+    private final LoadTestConfig config;
+    private final Random random;
+    private final List<String> endpoints;
+    private final int[] cumulativeWeights;
+
+    RequestMix(LoadTestConfig config) {
+        this.config = config;
+        this.random = new Random(config.seed);
+        this.endpoints = List.copyOf(config.mix.keySet());
+        this.cumulativeWeights = new int[endpoints.size()];
+        int sum = 0;
+        for (int i = 0; i < endpoints.size(); i++) {
+            sum += config.mix.get(endpoints.get(i));
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    /**
+     * 발송 스레드 하나에서만 부른다
+     */
+    Request next() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= pick) {
+            i++;
+        }
+        String endpoint = endpoints.get(i);
+
+        StringBuilder query = new StringBuilder();
+        if (random.nextDouble() < config.conditionRate) {
+            append(query, "username", "member" + random.nextInt(Math.max(config.users, 1)));
+        }
+        if (random.nextDouble() < config.conditionRate) {
+            append(query, "teamName", teamName(random.nextInt(Math.max(config.teams, 1))));
+        }
+        if (random.nextDouble() < config.conditionRate) {
+            append(query, "ageGoe", String.valueOf(random.nextInt(100)));
+        }
+        if (random.nextDouble() < config.conditionRate) {
+            append(query, "ageLoe", String.valueOf(random.nextInt(100)));
+        }
+        if (!"v1".equals(endpoint)) {
+            append(query, "page", String.valueOf(random.nextInt(config.maxPage + 1)));
+            append(query, "size", String.valueOf(config.pageSize));
+        }
+        String path = ENDPOINTS.get(endpoint) + (query.length() > 0 ? "?" + query : "");
+        return new Request(endpoint, path);
+    }
+
+    /**
+     * InitMember 와 같은 규칙 (앞 26개는 teamA ~ teamZ)
+     */
+    private static String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+
+    private static void append(StringBuilder query, String name, String value) {
+        if (query.length() > 0) {
+            query.append('&');
+        }
+        query.append(name).append('=').append(value);
+    }
+
+    static class Request {
+        final String endpoint;
+        final String path;
+
+        Request(String endpoint, String path) {
+            this.endpoint = endpoint;
+            this.path = path;
+        }
+    }
+}
@@ -4,11 +4,15 @@ import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import javax.persistence.EntityManager;
 
-@SpringBootApplication
+// R2DBC ConnectionFactory 빈이 생기면 JDBC DataSource 자동 설정이 꺼지므로 제외 (UserReactiveRepository 참고)
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableScheduling // TeamStatistics 재집계
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
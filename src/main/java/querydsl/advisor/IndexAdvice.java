@@ -0,0 +1,35 @@
+package querydsl.advisor;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 검색 모양 하나에 대한 관찰값, 실행 계획, 추천 인덱스
+ * before 는 추천 인덱스를 만들기 전, after 는 만든 뒤에 같은 SQL 로 다시 잰 값이다.
+ */
+@Getter
+@Setter
+public class IndexAdvice {
+
+    private final String shape;
+    private final SearchKind kind;
+    private long calls;
+    private double observedAvgMillis; // 실제 검색 호출의 평균 시간
+    private String sql;
+    private String planBefore;
+    private Long scannedRowsBefore;   // EXPLAIN ANALYZE 의 scanCount 합
+    private Double explainMillisBefore;
+    private List<String> recommendations = new ArrayList<>();
+    private boolean applied;
+    private String planAfter;
+    private Long scannedRowsAfter;
+    private Double explainMillisAfter;
+
+    public IndexAdvice(String shape, SearchKind kind) {
+        this.shape = shape;
+        this.kind = kind;
+    }
+}
@@ -0,0 +1,287 @@
+package querydsl.advisor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.UsernameMatch;
+import querydsl.repository.MemberSearchSql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 인덱스 어드바이저
+ *
+ * MemberSearchQueries 가 실행한 검색 조건 조합(모양 비트)과 정렬 순서별로 호출 수와 시간을 모은다.
+ * n-gram 색인의 id 목록으로 찾은 검색은 같은 SQL 을 만들 수 없으므로 MemberSearchQueries 가 넘기지 않는다.
+ * analyze 는 모양마다 처음 본 조건(정규화한 사본)으로 같은 SQL(MemberSearchSql)을 만들어 H2 EXPLAIN ANALYZE 를 돌리고,
+ * 테이블 전체를 읽는(tableScan) 모양에 대해 "같음 조건 컬럼 + 범위 조건 컬럼 + 정렬 컬럼" 순서의 복합 인덱스를 추천한다.
+ * apply 는 추천 인덱스를 만들고 같은 SQL 을 다시 재서 전후를 비교한다. auto-create 면 주기적으로 둘 다 한다.
+ * H2 의 EXPLAIN 은 비용 추정치를 보여 주지 않으므로 실행 계획(인덱스/전체 스캔)과 실제로 읽은 행 수로 비교한다.
+ */
+@Slf4j
+@Component
+public class IndexAdvisor {
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    private static final int KINDS = SearchKind.values().length;
+    private static final int MATCHES = UsernameMatch.values().length;
+
+    private final Map<Integer, Usage> usages = new ConcurrentHashMap<>();
+    private final Map<Integer, IndexAdvice> advices = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final boolean autoCreate;
+    private final int maxShapes;
+
+    public IndexAdvisor(JdbcTemplate jdbcTemplate,
+                        @Value("${querydsl.index-advisor.enabled:true}") boolean enabled,
+                        @Value("${querydsl.index-advisor.auto-create:false}") boolean autoCreate,
+                        @Value("${querydsl.index-advisor.max-shapes:200}") int maxShapes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.autoCreate = autoCreate;
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * 검색 한 번의 조건과 걸린 시간 (요청 스레드에서 호출되므로 맵 갱신만 한다)
+     * @param shape MemberSearchQueries 의 모양 비트, 처음 본 모양일 때만 표시용 문자열과 조건 사본을 만든다.
+     *              PREFIX, CONTAINS 는 같은 비트(like)지만 추천 인덱스가 다르므로 검색 방식도 키에 넣는다.
+     */
+    public void record(MemberSearchCondition condition, int shape, SearchKind kind, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        Integer key = (shape * MATCHES + UsernameMatch.of(condition).ordinal()) * KINDS + kind.ordinal();
+        Usage usage = usages.get(key);
+        if (usage == null) {
+            if (usages.size() >= maxShapes) {
+                return;
+            }
+            // 호출한 쪽이 조건 객체를 다시 바꿔도 영향이 없도록 사본을 둔다
+            usage = usages.computeIfAbsent(key, k -> new Usage(shapeOf(condition), kind, condition.normalized()));
+        }
+        usage.calls.increment();
+        usage.nanos.add(nanos);
+    }
+
+    public List<IndexAdvice> report() {
+        List<IndexAdvice> report = new ArrayList<>(advices.values());
+        report.sort(Comparator.comparingLong(IndexAdvice::getCalls).reversed());
+        return report;
+    }
+
+    /**
+     * 기록된 모양마다 실행 계획을 보고 추천 인덱스를 정한다. 이미 적용한 모양은 after 값을 유지한다.
+     * 관리 API 와 스케줄러가 동시에 불러도 before/after 값이 섞이지 않도록 apply 와 함께 한 번에 하나씩만 돈다.
+     */
+    public synchronized List<IndexAdvice> analyze() {
+        Set<String> existing = existingIndexes();
+        usages.forEach((key, usage) -> {
+            IndexAdvice advice = advices.computeIfAbsent(key, k -> new IndexAdvice(usage.shape, usage.kind));
+            long calls = usage.calls.sum();
+            advice.setCalls(calls);
+            advice.setObservedAvgMillis(calls > 0 ? usage.nanos.sum() / 1e6 / calls : 0);
+            if (advice.isApplied()) {
+                return;
+            }
+            MemberSearchSql sql = sqlOf(usage.sample, usage.kind);
+            advice.setSql(sql.getSql());
+            Explain explain = explain(sql);
+            advice.setPlanBefore(explain.plan);
+            advice.setScannedRowsBefore(explain.scannedRows);
+            advice.setExplainMillisBefore(explain.millis);
+            advice.setRecommendations(recommend(usage.sample, usage.kind, explain.plan, existing));
+        });
+        return report();
+    }
+
+    /**
+     * 추천 인덱스를 만들고 같은 SQL 을 다시 잰다
+     */
+    public synchronized List<IndexAdvice> apply() {
+        analyze();
+        for (Map.Entry<Integer, IndexAdvice> entry : advices.entrySet()) {
+            IndexAdvice advice = entry.getValue();
+            if (advice.isApplied() || advice.getRecommendations().isEmpty()) {
+                continue;
+            }
+            for (String ddl : advice.getRecommendations()) {
+                log.info("인덱스 어드바이저: {}", ddl);
+                jdbcTemplate.execute(ddl);
+            }
+            Usage usage = usages.get(entry.getKey());
+            Explain explain = explain(sqlOf(usage.sample, usage.kind));
+            advice.setPlanAfter(explain.plan);
+            advice.setScannedRowsAfter(explain.scannedRows);
+            advice.setExplainMillisAfter(explain.millis);
+            advice.setApplied(true);
+        }
+        return report();
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.index-advisor.interval:PT1H}",
+            initialDelayString = "${querydsl.index-advisor.interval:PT1H}")
+    public void autoApply() {
+        if (enabled && autoCreate) {
+            apply();
+        }
+    }
+
+    static String shapeOf(MemberSearchCondition condition) {
+        List<String> parts = new ArrayList<>();
+        if (hasText(condition.getUsername())) {
+            parts.add("username:" + UsernameMatch.of(condition));
+        }
+        if (hasText(condition.getTeamName())) {
+            parts.add("teamName");
+        }
+        if (condition.getAgeGoe() != null) {
+            parts.add("ageGoe");
+        }
+        if (condition.getAgeLoe() != null) {
+            parts.add("ageLoe");
+        }
+        if (condition.isReadModel()) {
+            parts.add("readModel");
+        }
+        return parts.isEmpty() ? "(none)" : String.join(",", parts);
+    }
+
+    private static MemberSearchSql sqlOf(MemberSearchCondition condition, SearchKind kind) {
+        if (kind == SearchKind.COUNT) {
+            return MemberSearchSql.count(condition, i -> "?");
+        }
+        return MemberSearchSql.content(condition, i -> "?").orderBy(kind.getOrderBy());
+    }
+
+    private Explain explain(MemberSearchSql sql) {
+        long start = System.nanoTime();
+        List<String> rows = jdbcTemplate.queryForList("explain analyze " + sql.getSql(), String.class,
+                sql.getBinds().toArray());
+        double millis = (System.nanoTime() - start) / 1e6;
+        String plan = String.join("\n", rows);
+        long scanned = 0;
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        while (matcher.find()) {
+            scanned += Long.parseLong(matcher.group(1));
+        }
+        return new Explain(plan, scanned, millis);
+    }
+
+    /**
+     * 전체 스캔하는 테이블마다 같음 조건 → 범위 조건 하나 → 정렬 순서로 컬럼을 잡는다.
+     * 부분 일치(CONTAINS)는 B-tree 인덱스로 도울 수 없으므로 컬럼에 넣지 않는다.
+     */
+    private static List<String> recommend(MemberSearchCondition condition, SearchKind kind, String plan,
+                                          Set<String> existing) {
+        Set<String> scanned = new LinkedHashSet<>();
+        Matcher matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            scanned.add(matcher.group(1).toLowerCase(Locale.ROOT));
+        }
+
+        UsernameMatch match = hasText(condition.getUsername()) ? UsernameMatch.of(condition) : null;
+        boolean cursor = kind == SearchKind.CURSOR;
+        List<String> ddl = new ArrayList<>();
+
+        String table = condition.isReadModel() ? "member_team" : "users";
+        if (scanned.contains(table)) {
+            List<String> columns = new ArrayList<>();
+            if (match == UsernameMatch.EXACT) {
+                columns.add("username");
+            }
+            if (condition.isReadModel() && hasText(condition.getTeamName())) {
+                columns.add("team_name");
+            }
+            if (match == UsernameMatch.PREFIX) {
+                columns.add("username");
+            } else if (condition.getAgeGoe() != null || condition.getAgeLoe() != null || cursor) {
+                columns.add("age");
+                if (cursor) {
+                    columns.add("user_id");
+                }
+            }
+            addIfMissing(ddl, table, columns, existing);
+        }
+        if (!condition.isReadModel() && hasText(condition.getTeamName()) && scanned.contains("team")) {
+            addIfMissing(ddl, "team", List.of("name"), existing);
+        }
+        return ddl;
+    }
+
+    private static void addIfMissing(List<String> ddl, String table, List<String> columns, Set<String> existing) {
+        if (columns.isEmpty()) {
+            return;
+        }
+        String key = table + "(" + String.join(",", columns) + ")";
+        if (existing.stream().anyMatch(index -> index.startsWith(key.substring(0, key.length() - 1)))) {
+            return; // 같은 컬럼으로 시작하는 인덱스가 이미 있다
+        }
+        String name = "idx_adv_" + table + "_" + String.join("_", columns);
+        ddl.add("create index if not exists " + name + " on " + key);
+    }
+
+    /**
+     * "테이블(컬럼1,컬럼2)" 형태의 기존 인덱스 목록 (H2 2.x INFORMATION_SCHEMA)
+     */
+    private Set<String> existingIndexes() {
+        Map<String, List<String>> columnsByIndex = new ConcurrentHashMap<>();
+        Map<String, String> tableByIndex = new ConcurrentHashMap<>();
+        jdbcTemplate.query("select index_name, table_name, column_name from information_schema.index_columns"
+                        + " where table_schema = 'PUBLIC' order by index_name, ordinal_position",
+                rs -> {
+                    String index = rs.getString(1);
+                    tableByIndex.put(index, rs.getString(2).toLowerCase(Locale.ROOT));
+                    columnsByIndex.computeIfAbsent(index, k -> new ArrayList<>())
+                            .add(rs.getString(3).toLowerCase(Locale.ROOT));
+                });
+        Set<String> indexes = new LinkedHashSet<>();
+        columnsByIndex.forEach((index, columns) ->
+                indexes.add(tableByIndex.get(index) + "(" + String.join(",", columns) + ")"));
+        return indexes;
+    }
+
+    private static class Usage {
+        private final String shape;
+        private final SearchKind kind;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final MemberSearchCondition sample;
+
+        private Usage(String shape, SearchKind kind, MemberSearchCondition sample) {
+            this.shape = shape;
+            this.kind = kind;
+            this.sample = sample;
+        }
+    }
+
+    private static class Explain {
+        private final String plan;
+        private final long scannedRows;
+        private final double millis;
+
+        private Explain(String plan, long scannedRows, double millis) {
+            this.plan = plan;
+            this.scannedRows = scannedRows;
+            this.millis = millis;
+        }
+    }
+}
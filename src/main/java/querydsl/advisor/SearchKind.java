@@ -0,0 +1,20 @@
+package querydsl.advisor;
+
+/**
+ * 검색 쿼리 종류, 정렬 순서가 다르면 필요한 인덱스도 다르다
+ */
+public enum SearchKind {
+    CONTENT(""),
+    CURSOR(" order by u.age, u.user_id"),
+    COUNT("");
+
+    private final String orderBy;
+
+    SearchKind(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+}
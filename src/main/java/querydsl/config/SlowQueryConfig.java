@@ -0,0 +1,46 @@
+package querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import querydsl.slowquery.SlowQueryDataSource;
+import querydsl.slowquery.SlowQueryLog;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * 느린 쿼리 로그 (querydsl.slow-query.enabled=true)
+ * org.hibernate.SQL/type 로그를 끈 운영 환경에서 쓰도록 DataSource 를 감싸서 임계값 이상인 SQL 만 남긴다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "querydsl.slow-query.enabled", havingValue = "true")
+public class SlowQueryConfig {
+
+    @Bean(destroyMethod = "close")
+    public SlowQueryLog slowQueryLog(@Value("${querydsl.slow-query.threshold:200ms}") Duration threshold,
+                                     @Value("${querydsl.slow-query.sample-rate:0}") double sampleRate,
+                                     @Value("${querydsl.slow-query.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${querydsl.slow-query.max-param-length:100}") int maxParamLength) {
+        log.info("느린 쿼리 로그 사용. threshold={}, sample-rate={}", threshold, sampleRate);
+        return new SlowQueryLog(threshold, sampleRate, queueCapacity, maxParamLength);
+    }
+
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource) {
+                    return SlowQueryDataSource.wrap((DataSource) bean, slowQueryLog.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 가상 스레드 요청 처리 (JDK 21 이상, querydsl.web.virtual-threads.enabled=true)
+ *
+ * 톰캣 요청 스레드를 가상 스레드로 바꾸면 리포지토리 호출도 그 위에서 돈다.
+ * 가상 스레드는 사실상 무제한이므로 커넥션 풀 크기만큼만 동시에 검색 API 로 들여보내고,
+ * 나머지는 풀에서 타임아웃 나기 전에 max-wait 만큼 기다리다 503 으로 돌려보낸다.
+ * 컴파일은 17 기준이라 가상 스레드 API 는 리플렉션으로 찾는다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "querydsl.web.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        log.info("톰캣 요청을 가상 스레드에서 처리합니다.");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean
+    public FilterRegistrationBean<DbConcurrencyLimitFilter> dbConcurrencyLimitFilter(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${querydsl.search.parallel-count.enabled:false}") boolean parallelCount,
+            @Value("${querydsl.search.parallel-count.threads:4}") int parallelCountThreads,
+            @Value("${querydsl.web.virtual-threads.max-wait:5s}") Duration maxWait) {
+        // 병렬 카운트 스레드가 쓰는 커넥션은 요청 수로 제한되지 않으므로 미리 빼 둔다
+        int maxConcurrent = parallelCount ? Math.max(1, poolSize - parallelCountThreads) : poolSize;
+        FilterRegistrationBean<DbConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new DbConcurrencyLimitFilter(maxConcurrent, maxWait));
+        registration.addUrlPatterns("/v1/*", "/v2/*", "/v3/*", "/v4/*");
+        return registration;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("가상 스레드는 JDK 21 이상에서만 쓸 수 있습니다. 현재 버전: "
+                    + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("가상 스레드 실행기를 만들 수 없습니다.", e);
+        }
+    }
+}
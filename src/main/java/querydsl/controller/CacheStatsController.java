@@ -0,0 +1,71 @@
+package querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 2차 캐시, 쿼리 캐시가 실제로 DB 부하를 줄이고 있는지 확인용
+ * hit/miss/put 은 Hibernate 통계, eviction 은 JCache 통계(JMX)에서 가져온다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private final EntityManagerFactory emf;
+
+    @GetMapping("/admin/cache-stats")
+    public Map<String, Object> cacheStats() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Long> evictions = evictionCounts();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : stats.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = stats.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("hit", region.getHitCount());
+            regionStats.put("miss", region.getMissCount());
+            regionStats.put("put", region.getPutCount());
+            regionStats.put("eviction", evictions.getOrDefault(regionName, 0L));
+            regionStats.put("size", region.getElementCountInMemory());
+            regions.put(regionName, regionStats);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("secondLevelCacheHit", stats.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMiss", stats.getSecondLevelCacheMissCount());
+        result.put("queryCacheHit", stats.getQueryCacheHitCount());
+        result.put("queryCacheMiss", stats.getQueryCacheMissCount());
+        result.put("queryExecutions", stats.getQueryExecutionCount());
+        result.put("entityLoads", stats.getEntityLoadCount());
+        result.put("regions", regions);
+        return result;
+    }
+
+    private Map<String, Long> evictionCounts() {
+        Map<String, Long> evictions = new LinkedHashMap<>();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+                evictions.put(name.getKeyProperty("Cache"), (Long) server.getAttribute(name, "CacheEvictions"));
+            }
+        } catch (JMException e) {
+            // 통계가 꺼져 있으면 eviction 은 0 으로 보여준다
+        }
+        return evictions;
+    }
+}
@@ -0,0 +1,37 @@
+package querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import querydsl.dto.ExportSummaryDto;
+import querydsl.export.MemberExportJob;
+
+import java.nio.file.Path;
+
+/**
+ * 회원 컬럼 파일 (MemberExportJob)
+ * POST 는 지금 바로 내보내고, GET /latest 는 가장 최근 파일만 읽어서 팀별로 집계한다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final MemberExportJob memberExportJob;
+
+    @PostMapping("/admin/export")
+    public ExportSummaryDto export() {
+        Path file = memberExportJob.export()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "이미 내보내는 중입니다"));
+        return MemberExportJob.summarize(file);
+    }
+
+    @GetMapping("/admin/export/latest")
+    public ExportSummaryDto latest() {
+        Path file = memberExportJob.latest()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "내보낸 파일이 없습니다"));
+        return MemberExportJob.summarize(file);
+    }
+}
@@ -0,0 +1,37 @@
+package querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import querydsl.advisor.IndexAdvice;
+import querydsl.advisor.IndexAdvisor;
+
+import java.util.List;
+
+/**
+ * 검색 조건 조합별 실행 계획과 추천 인덱스 (IndexAdvisor)
+ * GET 은 마지막으로 분석한 결과만 돌려준다.
+ * POST /analyze 는 지금까지 관찰한 모양을 EXPLAIN ANALYZE 로 실제 실행해 보고, POST /apply 는 추천 인덱스를 만든 뒤 전후를 비교한다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class IndexAdvisorController {
+
+    private final IndexAdvisor indexAdvisor;
+
+    @GetMapping("/admin/index-advisor")
+    public List<IndexAdvice> report() {
+        return indexAdvisor.report();
+    }
+
+    @PostMapping("/admin/index-advisor/analyze")
+    public List<IndexAdvice> analyze() {
+        return indexAdvisor.analyze();
+    }
+
+    @PostMapping("/admin/index-advisor/apply")
+    public List<IndexAdvice> apply() {
+        return indexAdvisor.apply();
+    }
+}
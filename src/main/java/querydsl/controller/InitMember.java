@@ -1,15 +1,23 @@
 package querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
 import querydsl.entity.Team;
 import querydsl.entity.User;
 
-import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
 
 @Profile("local")
 @Component
@@ -18,28 +26,82 @@ public class InitMember {
 
     private final InitMemberService initMemberService;
 
-    @PostConstruct
+    /**
+     * 기동을 막지 않도록 애플리케이션이 뜬 뒤 별도 스레드에서 넣는다
+     */
+    @EventListener(ApplicationReadyEvent.class)
     public void init() {
-        initMemberService.init();
+        new SimpleAsyncTaskExecutor("init-member-").execute(initMemberService::init);
     }
 
+    /**
+     * 건수는 querydsl.init.* 로 조절한다. (기본값은 팀 2개, 회원 100명)
+     * batch-size 건마다 flush, clear 후 커밋해서 영속성 컨텍스트와 트랜잭션이 커지지 않게 한다.
+     * insert 는 hibernate.jdbc.batch_size 단위로 묶여서 나가고, id 는 시퀀스에서 allocationSize 만큼 한 번에 받아온다.
+     */
+    @Slf4j
     @Component
     static class InitMemberService {
         @PersistenceContext
         private EntityManager em;
 
-        @Transactional
+        private final TransactionTemplate transactionTemplate;
+        private final int teamCount;
+        private final int userCount;
+        private final int batchSize;
+
+        InitMemberService(PlatformTransactionManager transactionManager,
+                          @Value("${querydsl.init.team-count:2}") int teamCount,
+                          @Value("${querydsl.init.user-count:100}") int userCount,
+                          @Value("${querydsl.init.batch-size:1000}") int batchSize) {
+            Assert.isTrue(teamCount > 0, "querydsl.init.team-count 는 1 이상이어야 합니다.");
+            Assert.isTrue(batchSize > 0, "querydsl.init.batch-size 는 1 이상이어야 합니다.");
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.teamCount = teamCount;
+            this.userCount = userCount;
+            this.batchSize = batchSize;
+        }
+
         public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new User("member" + i, i, selectedTeam));
+            long start = System.currentTimeMillis();
+            List<Long> teamIds = transactionTemplate.execute(status -> persistTeams());
+
+            for (int from = 0; from < userCount; from += batchSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(from + batchSize, userCount);
+                transactionTemplate.executeWithoutResult(status -> persistUsers(teamIds, chunkFrom, chunkTo));
             }
+            log.info("초기 데이터 입력 완료. teams={}, users={}, {}ms",
+                    teamCount, userCount, System.currentTimeMillis() - start);
+        }
+
+        private List<Long> persistTeams() {
+            List<Long> teamIds = new ArrayList<>(teamCount);
+            for (int i = 0; i < teamCount; i++) {
+                Team team = new Team(teamName(i));
+                em.persist(team);
+                teamIds.add(team.getId());
+                if ((i + 1) % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            return teamIds;
+        }
+
+        private void persistUsers(List<Long> teamIds, int from, int to) {
+            for (int i = from; i < to; i++) {
+                User user = new User("member" + i, i % 100);
+                // 생성자의 연관관계 편의 메서드는 팀의 users 컬렉션을 채우므로, 프록시로 FK 만 세팅한다
+                user.setTeam(em.getReference(Team.class, teamIds.get(i % teamIds.size())));
+                em.persist(user);
+            }
+            em.flush();
+            em.clear();
+        }
 
+        private String teamName(int index) {
+            return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
         }
     }
 }
@@ -0,0 +1,43 @@
+package querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import querydsl.dto.TeamMembersDto;
+import querydsl.dto.TeamStatsDto;
+import querydsl.repository.TeamQueryRepository;
+import querydsl.repository.TeamStatistics;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private static final int MAX_MEMBER_SIZE = 1000;
+
+    private final TeamQueryRepository teamQueryRepository;
+    private final TeamStatistics teamStatistics;
+
+    /**
+     * 팀은 page, size 로, 팀별 회원은 memberOffset, memberSize 로 페이징
+     */
+    @GetMapping("/v1/teams")
+    public Page<TeamMembersDto> teamsWithMembers(Pageable pageable,
+                                                 @RequestParam(defaultValue = "0") int memberOffset,
+                                                 @RequestParam(defaultValue = "20") int memberSize) {
+        return teamQueryRepository.findTeamsWithMembers(pageable,
+                Math.max(memberOffset, 0), Math.min(Math.max(memberSize, 1), MAX_MEMBER_SIZE));
+    }
+
+    /**
+     * 팀별 회원 수와 나이 통계, 메모리에 유지하는 집계를 읽는다 (TeamStatistics)
+     */
+    @GetMapping("/v1/teams/stats")
+    public List<TeamStatsDto> teamStats() {
+        return teamStatistics.findAll();
+    }
+}
@@ -1,23 +1,48 @@
 package querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import querydsl.dto.ImportResult;
+import querydsl.dto.MemberCursor;
+import querydsl.dto.MemberCursorPage;
 import querydsl.dto.MemberSearchCondition;
 import querydsl.dto.MemberTeamDto;
+import querydsl.repository.UserCsvImporter;
 import querydsl.repository.UserJpaRepository;
 import querydsl.repository.UserRepository;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @RestController
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     private final UserJpaRepository userJpaRepository;
     private final UserRepository userRepository;
+    private final UserCsvImporter userCsvImporter;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/v1/users")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition)
@@ -25,6 +50,40 @@ public class UserController {
         return userJpaRepository.search(condition);
     }
 
+    /**
+     * v1 과 같은 검색을 한 줄에 한 건씩(NDJSON) 바로 써서 내보낸다.
+     * 결과 전체를 메모리에 올리지 않으므로 조건이 넓어도 힙 사용량이 일정하다.
+     */
+    @GetMapping(value = "/v1/users/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void searchMemberV1Stream(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        ServletOutputStream out = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class);
+
+        userJpaRepository.searchStream(condition, dto -> {
+            try {
+                out.write(writer.writeValueAsBytes(dto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    /**
+     * CSV(username,age,teamName) 로 회원을 넣는다. 본문을 통째로 받지 않고 요청 스트림에서 한 줄씩 읽는다.
+     * 예) curl -X POST -H 'Content-Type: text/csv' --data-binary @members.csv localhost:8080/v1/users/import
+     */
+    @PostMapping(value = "/v1/users/import", consumes = "text/csv")
+    public ImportResult importUsers(HttpServletRequest request) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            return userCsvImporter.importCsv(reader);
+        }
+    }
+
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
         return userRepository.searchPageSimple(condition, pageable);
@@ -35,4 +94,26 @@ public class UserController {
         return userRepository.searchPageComplex(condition, pageable);
     }
 
+    /**
+     * 커서 페이징, 응답의 nextCursor 를 다음 요청의 cursor 로 넘긴다.
+     */
+    @GetMapping("/v4/members")
+    public MemberCursorPage searchMemberV4(MemberSearchCondition condition,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "20") int size) {
+        MemberCursor after = hasText(cursor) ? decodeCursor(cursor) : null;
+        return userRepository.searchByCursor(condition, after, Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE));
+    }
+
+    /**
+     * 클라이언트가 보낸 커서가 깨졌으면 500 이 아니라 400 으로 응답한다
+     */
+    private static MemberCursor decodeCursor(String cursor) {
+        try {
+            return MemberCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
 }
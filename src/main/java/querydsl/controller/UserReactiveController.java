@@ -0,0 +1,36 @@
+package querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.MemberTeamDto;
+import querydsl.repository.UserReactiveRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC 검색 API, 블로킹 JPA 경로(/v1/users, /v3/members)와 나란히 띄워서 비교한다.
+ * Spring MVC 가 Flux, Mono 반환값을 비동기로 처리하고, NDJSON 은 클라이언트가 읽는 만큼 흘려보낸다.
+ */
+@RestController
+@ConditionalOnProperty(name = "querydsl.reactive.url")
+@RequiredArgsConstructor
+public class UserReactiveController {
+
+    private final UserReactiveRepository userReactiveRepository;
+
+    @GetMapping(value = "/reactive/v1/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
+        return userReactiveRepository.search(condition);
+    }
+
+    @GetMapping("/reactive/v3/members")
+    public Mono<Page<MemberTeamDto>> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
+        return userReactiveRepository.searchPage(condition, pageable);
+    }
+}
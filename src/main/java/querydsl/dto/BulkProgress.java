@@ -0,0 +1,26 @@
+package querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 청크 단위 벌크 연산 진행 상황, 청크 하나가 커밋될 때마다 전달된다.
+ */
+@Getter
+@ToString
+public class BulkProgress {
+
+    private final long fromId;
+    private final long toId;
+    private final long maxId;
+    private final long updated;      // 이번 청크에서 바뀐 행 수
+    private final long totalUpdated; // 지금까지 바뀐 행 수
+
+    public BulkProgress(long fromId, long toId, long maxId, long updated, long totalUpdated) {
+        this.fromId = fromId;
+        this.toId = toId;
+        this.maxId = maxId;
+        this.updated = updated;
+        this.totalUpdated = totalUpdated;
+    }
+}
@@ -0,0 +1,21 @@
+package querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * count-estimate-threshold 로 세다 멈춘 페이지
+ * totalElements 는 실제 건수가 아니라 하한이고, 응답에 totalEstimated: true 로 알린다.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    public EstimatedPage(List<T> content, Pageable pageable, long total) {
+        super(content, pageable, total);
+    }
+
+    public boolean isTotalEstimated() {
+        return true;
+    }
+}
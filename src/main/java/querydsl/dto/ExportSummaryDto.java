@@ -0,0 +1,21 @@
+package querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ExportSummaryDto {
+
+    private String file;
+    private long rowCount;
+    private long noTeamCount;
+    private List<TeamStatsDto> teams;
+
+    public ExportSummaryDto(String file, long rowCount, long noTeamCount, List<TeamStatsDto> teams) {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.noTeamCount = noTeamCount;
+        this.teams = teams;
+    }
+}
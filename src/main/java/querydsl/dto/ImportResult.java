@@ -0,0 +1,40 @@
+package querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV 가져오기 결과, 실패한 행은 max-errors 개까지만 담고 나머지는 개수만 센다.
+ */
+@Getter
+@ToString
+public class ImportResult {
+
+    private long rows;          // 헤더를 뺀 데이터 행 수
+    private long imported;
+    private long failed;
+    private long teamsCreated;
+    private final List<ImportRowError> errors = new ArrayList<>();
+
+    public void addRows(long rows) {
+        this.rows += rows;
+    }
+
+    public void addImported(long imported) {
+        this.imported += imported;
+    }
+
+    public void addTeamCreated() {
+        this.teamsCreated++;
+    }
+
+    public void addError(ImportRowError error, int maxErrors) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(error);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * CSV 가져오기에서 실패한 행
+ */
+@Getter
+@ToString
+public class ImportRowError {
+
+    private final long line;      // 1부터, 헤더 줄 포함
+    private final String message;
+
+    public ImportRowError(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+}
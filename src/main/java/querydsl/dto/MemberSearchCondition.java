@@ -2,12 +2,30 @@ package querydsl.dto;
 
 import lombok.Data;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
 
     private String username;
+    private UsernameMatch usernameMatch; // 없으면 EXACT
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+    private boolean readModel; // true 면 조인 없이 member_team 읽기 모델에서 조회
+
+    /**
+     * 같은 결과를 내는 조건이 같은 키가 되도록 맞춘 사본 (빈 문자열은 null, 회원명이 없으면 usernameMatch 도 null)
+     */
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition key = new MemberSearchCondition();
+        key.setUsername(hasText(username) ? username : null);
+        key.setUsernameMatch(key.getUsername() != null ? UsernameMatch.of(this) : null);
+        key.setTeamName(hasText(teamName) ? teamName : null);
+        key.setAgeGoe(ageGoe);
+        key.setAgeLoe(ageLoe);
+        key.setReadModel(readModel);
+        return key;
+    }
 
 }
@@ -0,0 +1,56 @@
+package querydsl.dto;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+
+import java.util.List;
+
+/**
+ * MemberTeamDto 행 매퍼
+ *
+ * Projections.bean/fields 는 행마다 setter/필드를 리플렉션으로 찾아 쓰고,
+ * QMemberTeamDto(ConstructorExpression)나 JPQL "select new" 도 행마다 Constructor.newInstance 를 부른다.
+ * 이 매퍼는 생성자를 직접 호출하므로 리플렉션이 없고, 행마다 만드는 객체는 DTO 하나뿐이다.
+ * 인자 순서는 (memberId, username, age, teamId, teamName) 이다.
+ */
+public class MemberTeamDtoMapper extends FactoryExpressionBase<MemberTeamDto> {
+
+    private final List<Expression<?>> args;
+
+    public MemberTeamDtoMapper(Expression<Long> memberId,
+                               Expression<String> username,
+                               Expression<Integer> age,
+                               Expression<Long> teamId,
+                               Expression<String> teamName) {
+        super(MemberTeamDto.class);
+        this.args = List.of(memberId, username, age, teamId, teamName);
+    }
+
+    /**
+     * JPQL 에서 같은 순서로 조회한 Object[] 행을 바로 매핑할 때 쓴다.
+     */
+    public static MemberTeamDto map(Object[] row) {
+        return new MemberTeamDto(
+                (Long) row[0],
+                (String) row[1],
+                row[2] != null ? (Integer) row[2] : 0,
+                (Long) row[3],
+                (String) row[4]);
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    public MemberTeamDto newInstance(Object... row) {
+        return map(row);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+}
@@ -2,8 +2,10 @@ package querydsl.dto;
 
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor // Projections.bean, Projections.fields 용
 public class UserDto {
     private String username;
     private int age;
@@ -0,0 +1,40 @@
+package querydsl.dto;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+
+import java.util.List;
+
+/**
+ * UserDto 행 매퍼, 리플렉션 없이 생성자를 직접 호출한다. (MemberTeamDtoMapper 참고)
+ * 인자 순서는 (username, age) 이다.
+ */
+public class UserDtoMapper extends FactoryExpressionBase<UserDto> {
+
+    private final List<Expression<?>> args;
+
+    public UserDtoMapper(Expression<String> username, Expression<Integer> age) {
+        super(UserDto.class);
+        this.args = List.of(username, age);
+    }
+
+    public static UserDto map(Object[] row) {
+        return new UserDto((String) row[0], row[1] != null ? (Integer) row[1] : 0);
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    public UserDto newInstance(Object... row) {
+        return map(row);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+}
@@ -0,0 +1,53 @@
+package querydsl.dto;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.StringExpression;
+
+/**
+ * 회원명 검색 방식
+ * PREFIX 는 username 인덱스를 타는 like 'x%', CONTAINS 는 UsernameNgramIndex 로 후보 id 를 먼저 찾는다.
+ */
+public enum UsernameMatch {
+    EXACT, PREFIX, CONTAINS;
+
+    /**
+     * like 패턴의 이스케이프 문자, QueryDSL 의 startsWith/contains 와 같은 '!' 를 쓴다
+     */
+    public static final char LIKE_ESCAPE = '!';
+
+    public static UsernameMatch of(MemberSearchCondition condition) {
+        return condition.getUsernameMatch() != null ? condition.getUsernameMatch() : EXACT;
+    }
+
+    public BooleanExpression on(StringExpression path, String username) {
+        switch (this) {
+            case PREFIX:
+                return path.startsWith(username);
+            case CONTAINS:
+                return path.contains(username);
+            default:
+                return path.eq(username);
+        }
+    }
+
+    /**
+     * JPQL, SQL 에 직접 바인딩할 like 패턴 (EXACT 는 값 그대로)
+     */
+    public String likePattern(String username) {
+        if (this == EXACT) {
+            return username;
+        }
+        StringBuilder pattern = new StringBuilder(username.length() + 4);
+        if (this == CONTAINS) {
+            pattern.append('%');
+        }
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
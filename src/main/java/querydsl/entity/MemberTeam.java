@@ -0,0 +1,35 @@
+package querydsl.entity;
+
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+
+/**
+ * 회원 + 팀 읽기 모델 (member_team)
+ * users 와 team 을 조인한 결과를 미리 펼쳐 둔 테이블로, 애플리케이션에서는 읽기만 한다.
+ * 쓰기는 MemberTeamReadModelListener 가 User, Team 변경과 같은 트랜잭션에서 반영한다.
+ */
+@Entity
+@Immutable
+@Table(name = "member_team", indexes = {
+        @Index(name = "idx_member_team_age_id", columnList = "age, user_id"),
+        @Index(name = "idx_member_team_username", columnList = "username"),
+        @Index(name = "idx_member_team_team_id", columnList = "team_id"),
+        @Index(name = "idx_member_team_team_name", columnList = "team_name")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberTeam {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    private String username;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    @Column(name = "team_name")
+    private String teamName;
+}
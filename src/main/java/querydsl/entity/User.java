@@ -5,12 +5,17 @@ import lombok.*;
 import javax.persistence.*;
 
 @Entity(name = "users")
+@Table(indexes = {
+        @Index(name = "idx_users_age_id", columnList = "age, user_id"), // 커서 페이징용
+        @Index(name = "idx_users_username", columnList = "username") // 회원명 일치, 앞부분 일치 검색용
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class User {
 
-    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq_generator")
+    @SequenceGenerator(name = "user_seq_generator", sequenceName = "users_seq", allocationSize = 50)
     @Column(name="user_id")
     private Long id;
     private String username;
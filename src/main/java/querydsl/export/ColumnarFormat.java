@@ -0,0 +1,35 @@
+package querydsl.export;
+
+import java.nio.ByteOrder;
+
+/**
+ * 회원 컬럼 파일(.qdc) 형식
+ *
+ * <pre>
+ * header (HEADER_SIZE 바이트)
+ *   int magic, int version, long rowCount, long capacity,
+ *   long dictionaryOffset, long idOffset, long ageOffset, long teamCodeOffset,
+ *   long usernameOffsetsOffset, long usernameBytesOffset, long usernameBytesLength
+ * dictionary   int 팀 수, 팀마다 (long teamId, int 이름 바이트 수, UTF-8 이름)
+ * id           long[capacity]
+ * age          int[capacity]
+ * teamCode     int[capacity]   팀 사전의 순번, 팀이 없으면 -1
+ * username     long[capacity + 1] 시작 위치 + UTF-8 바이트 (i 번째 이름은 offsets[i] ~ offsets[i + 1])
+ * </pre>
+ * 모든 값은 little endian, 각 영역은 8바이트 경계에서 시작한다.
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x51445343; // "QDSC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 8 * 9;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int NO_TEAM = -1;
+
+    private ColumnarFormat() {
+    }
+
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+}
@@ -0,0 +1,95 @@
+package querydsl.export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static querydsl.export.ColumnarFormat.ORDER;
+
+/**
+ * 파일의 한 영역을 window 크기씩 나눠 매핑한다.
+ * MappedByteBuffer 하나는 2GB 를 넘을 수 없으므로 영역 안의 위치는 long 으로 받고, window 는 처음 접근할 때 매핑한다.
+ * window 크기는 8의 배수여야 long, int 값이 window 경계에 걸치지 않는다.
+ */
+final class MappedRegion {
+
+    static final int DEFAULT_WINDOW = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final long offset;
+    private final long length;
+    private final int window;
+    private final MappedByteBuffer[] windows;
+
+    MappedRegion(FileChannel channel, FileChannel.MapMode mode, long offset, long length, int window) {
+        if (window <= 0 || window % 8 != 0) {
+            throw new IllegalArgumentException("window 는 8의 배수여야 합니다: " + window);
+        }
+        this.channel = channel;
+        this.mode = mode;
+        this.offset = offset;
+        this.length = length;
+        this.window = window;
+        this.windows = new MappedByteBuffer[Math.toIntExact((length + window - 1) / window)];
+    }
+
+    long getLong(long position) {
+        return buffer(position).getLong((int) (position % window));
+    }
+
+    int getInt(long position) {
+        return buffer(position).getInt((int) (position % window));
+    }
+
+    void putLong(long position, long value) {
+        buffer(position).putLong((int) (position % window), value);
+    }
+
+    void putInt(long position, int value) {
+        buffer(position).putInt((int) (position % window), value);
+    }
+
+    /**
+     * window 경계에 걸친 바이트도 나눠서 읽는다
+     */
+    void get(long position, byte[] dst) {
+        int read = 0;
+        while (read < dst.length) {
+            long at = position + read;
+            int index = (int) (at % window);
+            MappedByteBuffer buffer = buffer(at);
+            int chunk = Math.min(dst.length - read, buffer.capacity() - index);
+            buffer.get(index, dst, read, chunk);
+            read += chunk;
+        }
+    }
+
+    void force() {
+        for (MappedByteBuffer buffer : windows) {
+            if (buffer != null) {
+                buffer.force();
+            }
+        }
+    }
+
+    private MappedByteBuffer buffer(long position) {
+        if (position < 0 || position >= length) {
+            throw new IndexOutOfBoundsException("position=" + position + ", length=" + length);
+        }
+        int index = (int) (position / window);
+        MappedByteBuffer buffer = windows[index];
+        if (buffer == null) {
+            long start = (long) index * window;
+            try {
+                buffer = channel.map(mode, offset + start, Math.min(window, length - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException("컬럼 파일 매핑 실패: position=" + (offset + start), e);
+            }
+            buffer.order(ORDER);
+            windows[index] = buffer;
+        }
+        return buffer;
+    }
+}
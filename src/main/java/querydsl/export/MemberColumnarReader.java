@@ -0,0 +1,173 @@
+package querydsl.export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static querydsl.export.ColumnarFormat.*;
+
+/**
+ * 회원 컬럼 파일 읽기
+ *
+ * 파일을 읽기 전용으로 매핑해서 행 단위로 바로 접근한다. DB 에 다시 적재하지 않고 집계할 때 쓴다.
+ * 컬럼 하나만 필요한 집계는 해당 컬럼만 읽으므로 나머지 영역은 페이지 캐시에 올라오지 않는다.
+ * 영역마다 window 크기씩 나눠 매핑하므로(MappedRegion) 행 번호와 위치는 long 이고 2GB 를 넘는 영역도 읽는다.
+ * 헤더의 위치와 길이는 파일 크기 안에 있는지 먼저 확인한다.
+ */
+public class MemberColumnarReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final long rowCount;
+    private final long[] teamIds;
+    private final String[] teamNames;
+    private final MappedRegion ids;
+    private final MappedRegion ages;
+    private final MappedRegion teamCodes;
+    private final MappedRegion usernameOffsets;
+    private final MappedRegion usernameBytes;
+
+    public MemberColumnarReader(Path file) throws IOException {
+        this(file, MappedRegion.DEFAULT_WINDOW);
+    }
+
+    MemberColumnarReader(Path file, int window) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("회원 컬럼 파일이 아닙니다: " + file);
+            }
+            ByteBuffer header = readFully(0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("회원 컬럼 파일이 아닙니다: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("지원하지 않는 버전: " + version);
+            }
+            this.rowCount = header.getLong();
+            long capacity = header.getLong();
+            long dictionaryOffset = header.getLong();
+            long idOffset = header.getLong();
+            long ageOffset = header.getLong();
+            long teamCodeOffset = header.getLong();
+            long usernameOffsetsOffset = header.getLong();
+            long usernameBytesOffset = header.getLong();
+            long usernameBytesLength = header.getLong();
+            if (rowCount < 0 || rowCount > capacity) {
+                throw new IOException("잘못된 행 수: rowCount=" + rowCount + ", capacity=" + capacity);
+            }
+
+            ByteBuffer dictionary = readFully(dictionaryOffset, Math.toIntExact(
+                    checkRegion(file, size, "dictionary", dictionaryOffset, idOffset - dictionaryOffset)));
+            int teamCount = dictionary.getInt();
+            this.teamIds = new long[teamCount];
+            this.teamNames = new String[teamCount];
+            for (int i = 0; i < teamCount; i++) {
+                teamIds[i] = dictionary.getLong();
+                byte[] name = new byte[dictionary.getInt()];
+                dictionary.get(name);
+                teamNames[i] = new String(name, StandardCharsets.UTF_8);
+            }
+
+            this.ids = region(file, size, "id", idOffset, Math.multiplyExact(rowCount, 8L), window);
+            this.ages = region(file, size, "age", ageOffset, Math.multiplyExact(rowCount, 4L), window);
+            this.teamCodes = region(file, size, "teamCode", teamCodeOffset, Math.multiplyExact(rowCount, 4L), window);
+            this.usernameOffsets = region(file, size, "usernameOffsets", usernameOffsetsOffset,
+                    Math.multiplyExact(rowCount + 1, 8L), window);
+            this.usernameBytes = region(file, size, "usernameBytes", usernameBytesOffset, usernameBytesLength, window);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (e instanceof ArithmeticException || e instanceof BufferUnderflowException) {
+                throw new IOException("헤더가 손상된 회원 컬럼 파일: " + file, e);
+            }
+            throw e;
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getTeamCount() {
+        return teamNames.length;
+    }
+
+    public long id(long row) {
+        return ids.getLong(row * 8);
+    }
+
+    public int age(long row) {
+        return ages.getInt(row * 4);
+    }
+
+    /**
+     * @return 팀 사전 순번, 팀이 없으면 -1
+     */
+    public int teamCode(long row) {
+        return teamCodes.getInt(row * 4);
+    }
+
+    public Long teamId(long row) {
+        int code = teamCode(row);
+        return code == NO_TEAM ? null : teamIds[code];
+    }
+
+    public String teamName(long row) {
+        int code = teamCode(row);
+        return code == NO_TEAM ? null : teamNames[code];
+    }
+
+    public long teamIdOf(int code) {
+        return teamIds[code];
+    }
+
+    public String teamNameOf(int code) {
+        return teamNames[code];
+    }
+
+    public String username(long row) {
+        long start = usernameOffsets.getLong(row * 8);
+        long end = usernameOffsets.getLong((row + 1) * 8);
+        byte[] bytes = new byte[Math.toIntExact(end - start)];
+        usernameBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("position=" + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private MappedRegion region(Path file, long size, String name, long offset, long length, int window)
+            throws IOException {
+        checkRegion(file, size, name, offset, length);
+        return new MappedRegion(channel, FileChannel.MapMode.READ_ONLY, offset, length, window);
+    }
+
+    /**
+     * 영역이 파일 안에 있는지 확인한다 (잘렸거나 손상된 파일을 매핑하지 않도록)
+     */
+    private static long checkRegion(Path file, long size, String name, long offset, long length) throws IOException {
+        if (offset < HEADER_SIZE || length < 0 || offset > size || length > size - offset) {
+            throw new IOException("회원 컬럼 파일의 " + name + " 영역이 파일 밖에 있습니다: " + file
+                    + " (offset=" + offset + ", length=" + length + ", size=" + size + ")");
+        }
+        return length;
+    }
+}
@@ -0,0 +1,157 @@
+package querydsl.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static querydsl.export.ColumnarFormat.*;
+
+/**
+ * 회원 컬럼 파일 쓰기 (형식은 ColumnarFormat)
+ *
+ * 행 수의 상한(capacity)을 먼저 받아 고정 길이 컬럼 영역을 정하고, 컬럼마다 window 크기씩 매핑한 버퍼(MappedRegion)에 바로 쓴다.
+ * 길이를 미리 알 수 없는 회원명 바이트는 마지막 영역에 window 크기씩 이어서 매핑한다.
+ * 행을 힙에 모아 두지 않으므로 행 수와 상관없이 메모리 사용량이 일정하다.
+ */
+class MemberColumnarWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final long capacity;
+    private final long dictionaryOffset;
+    private final long idOffset;
+    private final long ageOffset;
+    private final long teamCodeOffset;
+    private final long usernameOffsetsOffset;
+    private final long usernameBytesOffset;
+    private final int window;
+    private final MappedRegion ids;
+    private final MappedRegion ages;
+    private final MappedRegion teamCodes;
+    private final MappedRegion usernameOffsets;
+    private MappedByteBuffer usernameBytes;
+    private long usernameWindowStart;
+    private long usernameLength;
+    private long rowCount;
+
+    /**
+     * @param teams 팀 사전, 순번이 teamCode 가 된다 (teamId, 이름)
+     */
+    MemberColumnarWriter(Path file, long capacity, List<Object[]> teams) throws IOException {
+        this(file, capacity, teams, MappedRegion.DEFAULT_WINDOW);
+    }
+
+    MemberColumnarWriter(Path file, long capacity, List<Object[]> teams, int window) throws IOException {
+        this.window = window;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.capacity = capacity;
+
+        byte[][] names = new byte[teams.size()][];
+        long dictionarySize = 4;
+        for (int i = 0; i < teams.size(); i++) {
+            names[i] = String.valueOf(teams.get(i)[1]).getBytes(StandardCharsets.UTF_8);
+            dictionarySize += 8 + 4 + names[i].length;
+        }
+        this.dictionaryOffset = HEADER_SIZE;
+        this.idOffset = align(dictionaryOffset + dictionarySize);
+        this.ageOffset = align(idOffset + capacity * 8);
+        this.teamCodeOffset = align(ageOffset + capacity * 4);
+        this.usernameOffsetsOffset = align(teamCodeOffset + capacity * 4);
+        this.usernameBytesOffset = align(usernameOffsetsOffset + (capacity + 1) * 8);
+
+        MappedByteBuffer dictionary = map(dictionaryOffset, dictionarySize);
+        dictionary.putInt(teams.size());
+        for (int i = 0; i < teams.size(); i++) {
+            dictionary.putLong(((Number) teams.get(i)[0]).longValue());
+            dictionary.putInt(names[i].length);
+            dictionary.put(names[i]);
+        }
+        dictionary.force();
+
+        this.ids = region(idOffset, capacity * 8);
+        this.ages = region(ageOffset, capacity * 4);
+        this.teamCodes = region(teamCodeOffset, capacity * 4);
+        this.usernameOffsets = region(usernameOffsetsOffset, (capacity + 1) * 8);
+        this.usernameOffsets.putLong(0, 0);
+        this.usernameBytes = map(usernameBytesOffset, window);
+        this.usernameWindowStart = 0;
+    }
+
+    /**
+     * @return capacity 를 넘어서 더 쓸 수 없으면 false
+     */
+    boolean append(long id, String username, int age, int teamCode) {
+        if (rowCount == capacity) {
+            return false;
+        }
+        ids.putLong(rowCount * 8, id);
+        ages.putInt(rowCount * 4, age);
+        teamCodes.putInt(rowCount * 4, teamCode);
+
+        byte[] bytes = username != null ? username.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int written = 0;
+        while (written < bytes.length) {
+            if (!usernameBytes.hasRemaining()) {
+                usernameBytes.force();
+                usernameWindowStart += usernameBytes.capacity();
+                usernameBytes = map(usernameBytesOffset + usernameWindowStart, window);
+            }
+            int chunk = Math.min(bytes.length - written, usernameBytes.remaining());
+            usernameBytes.put(bytes, written, chunk);
+            written += chunk;
+        }
+        usernameLength += bytes.length;
+        usernameOffsets.putLong((rowCount + 1) * 8, usernameLength);
+        rowCount++;
+        return true;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 헤더를 쓰고, 회원명 영역 뒤에 남은 window 를 잘라낸다
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            ids.force();
+            ages.force();
+            teamCodes.force();
+            usernameOffsets.force();
+            usernameBytes.force();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putLong(rowCount).putLong(capacity)
+                    .putLong(dictionaryOffset).putLong(idOffset).putLong(ageOffset).putLong(teamCodeOffset)
+                    .putLong(usernameOffsetsOffset).putLong(usernameBytesOffset).putLong(usernameLength)
+                    .flip();
+            channel.write(header, 0);
+            channel.truncate(usernameBytesOffset + usernameLength);
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private MappedRegion region(long position, long size) {
+        return new MappedRegion(channel, FileChannel.MapMode.READ_WRITE, position, size, window);
+    }
+
+    private MappedByteBuffer map(long position, long size) {
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+            buffer.order(ORDER);
+            return buffer;
+        } catch (IOException e) {
+            throw new IllegalStateException("컬럼 파일 매핑 실패: position=" + position + ", size=" + size, e);
+        }
+    }
+}
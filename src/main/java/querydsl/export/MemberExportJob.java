@@ -0,0 +1,221 @@
+package querydsl.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import querydsl.dto.ExportSummaryDto;
+import querydsl.dto.TeamStatsDto;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static querydsl.export.ColumnarFormat.NO_TEAM;
+
+/**
+ * 회원, 팀 컬럼 파일 내보내기
+ *
+ * StatelessSession 으로 users left join team 을 앞으로만 스크롤하면서 MemberColumnarWriter 로 바로 쓴다.
+ * 영속성 컨텍스트가 없으므로 행 수가 많아도 1차 캐시에 엔티티가 쌓이지 않는다.
+ * 시작할 때 센 max(user_id) 까지만 읽으므로 내보내는 동안 새로 들어온 회원은 다음 파일에 들어간다.
+ * 파일은 .tmp 로 쓴 뒤 이름을 바꾸므로 latest 는 항상 다 쓴 파일만 본다. 실패하면 .tmp 는 지운다.
+ */
+@Slf4j
+@Component
+public class MemberExportJob {
+
+    static final String PREFIX = "members-";
+    static final String SUFFIX = ".qdc";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final SessionFactory sessionFactory;
+    private final Path dir;
+    private final int fetchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public MemberExportJob(EntityManagerFactory emf,
+                           @Value("${querydsl.export.dir:export}") String dir,
+                           @Value("${querydsl.export.fetch-size:1000}") int fetchSize) {
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+        this.dir = Paths.get(dir);
+        this.fetchSize = fetchSize;
+    }
+
+    @Scheduled(cron = "${querydsl.export.cron:-}")
+    public void scheduledExport() {
+        try {
+            export();
+        } catch (RuntimeException e) {
+            log.warn("member export failed", e);
+        }
+    }
+
+    /**
+     * @return 새로 만든 파일, 이미 내보내는 중이면 empty
+     */
+    public Optional<Path> export() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        try {
+            Files.createDirectories(dir);
+            Path target = dir.resolve(PREFIX + LocalDateTime.now().format(FILE_TIME) + SUFFIX);
+            Path tmp = dir.resolve(target.getFileName() + ".tmp");
+            long start = System.nanoTime();
+            long rows;
+            try {
+                rows = write(tmp);
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                deleteQuietly(tmp, e);
+                throw e;
+            }
+            log.info("member export {} rows={} took={}ms", target, rows, (System.nanoTime() - start) / 1_000_000);
+            return Optional.of(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 실패한 내보내기의 .tmp 를 남기지 않는다. 지우다 실패해도 원래 예외를 던진다
+     */
+    private static void deleteQuietly(Path tmp, Exception cause) {
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private long write(Path file) throws IOException {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                Object[] range = (Object[]) session.createQuery(
+                                "select count(u), max(u.id) from users u")
+                        .setReadOnly(true)
+                        .uniqueResult();
+                long capacity = ((Number) range[0]).longValue();
+                long maxId = range[1] != null ? ((Number) range[1]).longValue() : 0L;
+
+                @SuppressWarnings("unchecked")
+                List<Object[]> teams = session.createQuery("select t.id, t.name from Team t order by t.id")
+                        .setReadOnly(true)
+                        .list();
+                Map<Long, Integer> teamCodes = new HashMap<>();
+                for (int i = 0; i < teams.size(); i++) {
+                    teamCodes.put(((Number) teams.get(i)[0]).longValue(), i);
+                }
+
+                long skipped = 0;
+                try (MemberColumnarWriter writer = new MemberColumnarWriter(file, capacity, teams);
+                     ScrollableResults scroll = session.createQuery(
+                                     "select u.id, u.username, u.age, t.id from users u left join u.team t" +
+                                             " where u.id <= :maxId order by u.id")
+                             .setParameter("maxId", maxId)
+                             .setReadOnly(true)
+                             .setFetchSize(fetchSize)
+                             .scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (scroll.next()) {
+                        Long teamId = (Long) scroll.get(3);
+                        Integer code = teamId != null ? teamCodes.get(teamId) : null;
+                        // 팀 목록을 읽은 뒤 생긴 팀은 사전에 없으므로 팀 없음으로 둔다
+                        if (!writer.append((Long) scroll.get(0), (String) scroll.get(1), (Integer) scroll.get(2),
+                                code != null ? code : NO_TEAM)) {
+                            skipped++;
+                        }
+                    }
+                    tx.commit();
+                    if (skipped > 0) {
+                        log.warn("member export: {} rows appeared after count and were skipped", skipped);
+                    }
+                    return writer.getRowCount();
+                }
+            } catch (RuntimeException | IOException e) {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    public Optional<Path> latest() {
+        if (!Files.isDirectory(dir)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                        String name = f.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .max(Comparator.comparing(f -> f.getFileName().toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 파일만 읽어서 팀별 회원 수와 나이를 집계한다 (DB 를 보지 않는다)
+     */
+    public static ExportSummaryDto summarize(Path file) {
+        try (MemberColumnarReader reader = new MemberColumnarReader(file)) {
+            int teamCount = reader.getTeamCount();
+            long[] counts = new long[teamCount];
+            long[] ageSums = new long[teamCount];
+            int[] ageMins = new int[teamCount];
+            int[] ageMaxs = new int[teamCount];
+            long noTeam = 0;
+            long rows = reader.getRowCount();
+            for (long row = 0; row < rows; row++) {
+                int code = reader.teamCode(row);
+                if (code == NO_TEAM) {
+                    noTeam++;
+                    continue;
+                }
+                int age = reader.age(row);
+                if (counts[code] == 0 || age < ageMins[code]) {
+                    ageMins[code] = age;
+                }
+                if (counts[code] == 0 || age > ageMaxs[code]) {
+                    ageMaxs[code] = age;
+                }
+                counts[code]++;
+                ageSums[code] += age;
+            }
+
+            List<TeamStatsDto> teams = new ArrayList<>(teamCount);
+            for (int code = 0; code < teamCount; code++) {
+                boolean empty = counts[code] == 0;
+                teams.add(new TeamStatsDto(reader.teamIdOf(code), reader.teamNameOf(code), counts[code], ageSums[code],
+                        empty ? null : ageMins[code], empty ? null : ageMaxs[code]));
+            }
+            return new ExportSummaryDto(file.getFileName().toString(), rows, noTeam, teams);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
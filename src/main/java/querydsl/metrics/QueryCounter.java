@@ -0,0 +1,72 @@
+package querydsl.metrics;
+
+/**
+ * 스레드별 SQL 실행 수, 엔티티 로딩 수
+ *
+ * 계속 증가만 하는 값이라 구간의 시작과 끝 값의 차이로 잰다. 그래서 중첩된 측정(요청 > 리포지토리 메서드)도 서로 간섭하지 않는다.
+ * 다른 스레드에서 실행된 SQL(병렬 카운트 등)과 Hibernate 를 거치지 않는 JDBC, R2DBC 는 세지 않는다.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<Counts> COUNTS = ThreadLocal.withInitial(Counts::new);
+
+    private QueryCounter() {
+    }
+
+    public static long statements() {
+        return COUNTS.get().statements;
+    }
+
+    public static long selects() {
+        return COUNTS.get().selects;
+    }
+
+    public static long entitiesLoaded() {
+        return COUNTS.get().entitiesLoaded;
+    }
+
+    static void onStatement(String sql) {
+        Counts counts = COUNTS.get();
+        counts.statements++;
+        if (isSelect(sql)) {
+            counts.selects++;
+        }
+    }
+
+    /**
+     * 시퀀스 조회(id 할당)는 조회 쿼리로 치지 않는다
+     * use_sql_comments 가 켜져 있으면 SQL 앞에 주석이 붙으므로 앞쪽 공백과 블록 주석을 건너뛰고 본다.
+     */
+    static boolean isSelect(String sql) {
+        int start = skipLeadingComments(sql);
+        boolean select = sql.regionMatches(true, start, "select", 0, 6) || sql.regionMatches(true, start, "with", 0, 4);
+        return select && !sql.contains("next value for");
+    }
+
+    private static int skipLeadingComments(String sql) {
+        int i = 0;
+        while (true) {
+            while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            }
+            if (!sql.startsWith("/*", i)) {
+                return i;
+            }
+            int end = sql.indexOf("*/", i + 2);
+            if (end < 0) {
+                return sql.length();
+            }
+            i = end + 2;
+        }
+    }
+
+    static void onEntityLoaded() {
+        COUNTS.get().entitiesLoaded++;
+    }
+
+    private static final class Counts {
+        private long statements;
+        private long selects;
+        private long entitiesLoaded;
+    }
+}
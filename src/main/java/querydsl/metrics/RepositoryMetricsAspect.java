@@ -0,0 +1,116 @@
+package querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import querydsl.dto.MemberCursorPage;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 리포지토리 메서드별 지표
+ *
+ * querydsl.repository.calls              지연 시간 (히스토그램, outcome 태그로 성공/예외 구분)
+ * querydsl.repository.rows               돌려준 행 수 (List, Page, 커서 페이지, Optional)
+ * querydsl.repository.sql.statements     호출 한 번에 실행된 SQL 수
+ * querydsl.repository.entities.loaded    호출 한 번에 영속성 컨텍스트에 올라온 엔티티 수
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry registry;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * querydsl.repository.UserRepositoryImpl.*(..))"
+            + " || execution(public * querydsl.repository.UserJpaRepository.*(..))"
+            + " || execution(public * querydsl.repository.UserQueryRepository.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        Meters m = meters.computeIfAbsent(repository + '.' + method, key -> new Meters(registry, repository, method));
+
+        long statements = QueryCounter.statements();
+        long entities = QueryCounter.entitiesLoaded();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            int rows = rows(result);
+            if (rows >= 0) {
+                m.rows.record(rows);
+            }
+            success = true;
+            return result;
+        } finally {
+            (success ? m.success : m.error).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            m.statements.record(QueryCounter.statements() - statements);
+            m.entitiesLoaded.record(QueryCounter.entitiesLoaded() - entities);
+        }
+    }
+
+    /**
+     * 행 수를 알 수 없는 결과(카운트, 벌크 update 건수, void)는 -1
+     */
+    private static int rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberCursorPage) {
+            return ((MemberCursorPage) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private static final class Meters {
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary rows;
+        private final DistributionSummary statements;
+        private final DistributionSummary entitiesLoaded;
+
+        private Meters(MeterRegistry registry, String repository, String method) {
+            this.success = timer(registry, repository, method, "success");
+            this.error = timer(registry, repository, method, "error");
+            this.rows = summary(registry, "querydsl.repository.rows", repository, method);
+            this.statements = summary(registry, "querydsl.repository.sql.statements", repository, method);
+            this.entitiesLoaded = summary(registry, "querydsl.repository.entities.loaded", repository, method);
+        }
+
+        private static Timer timer(MeterRegistry registry, String repository, String method, String outcome) {
+            return Timer.builder("querydsl.repository.calls")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private static DistributionSummary summary(MeterRegistry registry, String name,
+                                                   String repository, String method) {
+            return DistributionSummary.builder(name)
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .register(registry);
+        }
+    }
+}
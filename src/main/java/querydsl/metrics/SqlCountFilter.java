@@ -0,0 +1,53 @@
+package querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청 하나에서 실행된 SQL 수 (querydsl.http.sql.statements, uri 태그는 매핑된 패턴)
+ * N+1 이 생기면 요청당 SQL 수가 튀므로 대시보드에서 바로 보인다. warn-threshold 를 넘으면 로그도 남긴다.
+ */
+@Slf4j
+@Component
+public class SqlCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+    private final long warnThreshold;
+
+    public SqlCountFilter(MeterRegistry registry,
+                          @Value("${querydsl.metrics.sql-per-request.warn-threshold:50}") long warnThreshold) {
+        this.registry = registry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long statements = QueryCounter.statements();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long executed = QueryCounter.statements() - statements;
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            DistributionSummary.builder("querydsl.http.sql.statements")
+                    .tag("uri", uri)
+                    .register(registry)
+                    .record(executed);
+            if (executed > warnThreshold) {
+                log.warn("요청 하나에서 SQL {}건 실행. {} {}", executed, request.getMethod(), request.getRequestURI());
+            }
+        }
+    }
+}
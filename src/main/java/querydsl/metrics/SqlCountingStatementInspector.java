@@ -0,0 +1,28 @@
+package querydsl.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Hibernate 가 준비하는 모든 SQL 을 QueryCounter 에 센다.
+ * application.yml 이 아니라 HibernatePropertiesCustomizer 로 hibernate.session_factory.statement_inspector 에 넣으므로
+ * 설정 파일을 통째로 바꾸는 테스트(src/test/resources/application.yml)에서도 등록된다.
+ */
+@Component
+public class SqlCountingStatementInspector implements StatementInspector, HibernatePropertiesCustomizer {
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.onStatement(sql);
+        return sql;
+    }
+}
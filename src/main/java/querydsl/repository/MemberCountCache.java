@@ -0,0 +1,123 @@
+package querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색 조건별 전체 카운트 캐시
+ * User, Team 이 바뀌면 MemberCountCacheListener 를 통해 커밋 후에 전부 비운다.
+ * 벌크 update 는 UsersBulkUpdatedEvent 로 비우고, 그 밖에 엔티티 이벤트를 거치지 않는 변경에 대비해 ttl 이 지나면 다시 센다.
+ */
+@Component
+public class MemberCountCache {
+
+    private final Map<MemberSearchCondition, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    public MemberCountCache(@Value("${querydsl.search.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${querydsl.search.count-cache.max-entries:1000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier counter) {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            // 이 트랜잭션이 아직 커밋되지 않은 변경을 갖고 있으면 캐시를 읽지도 채우지도 않는다
+            return counter.getAsLong();
+        }
+        MemberSearchCondition key = normalize(condition);
+        long now = System.nanoTime();
+        long currentGeneration = generation.get();
+
+        Entry entry = cache.get(key);
+        if (entry != null && entry.generation == currentGeneration && entry.expiresAt - now > 0) {
+            return entry.count;
+        }
+
+        long count = counter.getAsLong();
+        if (cache.size() >= maxEntries) {
+            cache.clear();
+        }
+        // 세는 도중에 무효화됐다면 이미 낡은 값일 수 있으니 저장하지 않는다
+        if (generation.get() == currentGeneration) {
+            cache.put(key, new Entry(count, now + ttlNanos, currentGeneration));
+        }
+        return count;
+    }
+
+    /**
+     * 커밋된 User, Team 변경과 벌크 update 마다 올라가는 세대 (SearchSingleFlight 도 쓴다)
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    @EventListener
+    public void onBulkUpdate(UsersBulkUpdatedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * 롤백된 변경으로 캐시를 비우지 않도록, 트랜잭션마다 한 번만 커밋 후에 비운다.
+     */
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateAll();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return; // 이번 트랜잭션에 이미 등록됨
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateAll();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+            }
+        });
+    }
+
+    /**
+     * where 절에서 빈 문자열은 조건이 없는 것과 같으므로 같은 키로 보고,
+     * 읽기 모델에서 세도 같은 값이므로 readModel 은 키에서 뺀다
+     */
+    private MemberSearchCondition normalize(MemberSearchCondition condition) {
+        MemberSearchCondition key = condition.normalized();
+        key.setReadModel(false);
+        return key;
+    }
+
+    private static class Entry {
+        private final long count;
+        private final long expiresAt;
+        private final long generation;
+
+        private Entry(long count, long expiresAt, long generation) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import querydsl.advisor.IndexAdvisor;
+import querydsl.advisor.SearchKind;
+import querydsl.dto.MemberCursor;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.MemberTeamDto;
+import querydsl.dto.MemberTeamDtoMapper;
+import querydsl.dto.UsernameMatch;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static org.springframework.util.StringUtils.hasText;
+import static querydsl.entity.QMemberTeam.memberTeam;
+import static querydsl.entity.QTeam.team;
+import static querydsl.entity.QUser.user;
+
+/**
+ * MemberSearchCondition 검색 쿼리 템플릿
+ *
+ * where 절은 username(일치, like, 색인으로 찾은 id 목록), teamName, ageGoe, ageLoe 가 있고 없고에 따라 몇 가지 모양(shape)뿐이다.
+ * 모양별 쿼리를 기동 시 QueryDSL where 파라미터로 한 번만 만들고, 값 자리에는 Param 을 둔다.
+ * 만든 쿼리는 그 자리에서 JPQL 문자열과 위치 파라미터 목록으로 직렬화해 둔다.
+ * 요청마다 식 트리 생성도 JPQL 직렬화도 하지 않고 em.createQuery 에 파라미터 값만 바인딩한다.
+ * 같은 모양은 항상 같은 JPQL 이므로 HQL 파싱은 Hibernate 쿼리 플랜 캐시에서 한 번만 한다.
+ */
+@Component
+public class MemberSearchQueries {
+
+    static final String MEMBER_SEARCH_REGION = "member-search";
+
+    static final int USERNAME = 1;
+    static final int TEAM_NAME = 1 << 1;
+    static final int AGE_GOE = 1 << 2;
+    static final int AGE_LOE = 1 << 3;
+    static final int CURSOR = 1 << 4;
+    static final int USERNAME_LIKE = 1 << 5; // USERNAME 과 같이 쓴다
+    static final int MEMBER_IDS = 1 << 6; // n-gram 색인으로 찾은 id 목록, USERNAME_LIKE 와 같이 쓴다
+    static final int READ_MODEL = 1 << 7; // users, team 대신 member_team(MemberTeam)
+    private static final int SHAPES = 1 << 8;
+
+    private static final JPQLTemplates TEMPLATES = HQLTemplates.DEFAULT;
+
+    private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+    private static final Param<Integer> CURSOR_AGE_PARAM = new Param<>(Integer.class, "cursorAge");
+    private static final Param<Long> CURSOR_ID_PARAM = new Param<>(Long.class, "cursorId");
+    @SuppressWarnings("rawtypes")
+    private static final Param<List> MEMBER_IDS_PARAM = new Param<>(List.class, "memberIds");
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final UsernameNgramIndex ngramIndex;
+    private final IndexAdvisor indexAdvisor;
+    private final boolean queryCacheEnabled;
+
+    private final Compiled[] contentQueries = new Compiled[SHAPES];
+    private final Compiled[] cursorQueries = new Compiled[SHAPES];
+    private final Compiled[] countQueries = new Compiled[SHAPES];
+    private final LongAdder serializations = new LongAdder();
+
+    public MemberSearchQueries(EntityManager em, EntityManagerFactory emf, UsernameNgramIndex ngramIndex,
+                               IndexAdvisor indexAdvisor,
+                               @Value("${querydsl.search.query-cache:false}") boolean queryCacheEnabled) {
+        this.em = em;
+        this.emf = emf;
+        this.ngramIndex = ngramIndex;
+        this.indexAdvisor = indexAdvisor;
+        this.queryCacheEnabled = queryCacheEnabled;
+
+        JPAQueryFactory queryFactory = new JPAQueryFactory(TEMPLATES, em);
+        for (int shape = 0; shape < SHAPES; shape++) {
+            if ((shape & CURSOR) != 0 || !isValid(shape)) {
+                continue;
+            }
+            if ((shape & READ_MODEL) != 0) {
+                contentQueries[shape] = serialize(readModelContent(queryFactory, shape));
+                cursorQueries[shape] = serialize(readModelContent(queryFactory, shape)
+                        .orderBy(memberTeam.age.asc(), memberTeam.userId.asc()));
+                cursorQueries[shape | CURSOR] = serialize(readModelContent(queryFactory, shape | CURSOR)
+                        .orderBy(memberTeam.age.asc(), memberTeam.userId.asc()));
+                countQueries[shape] = serialize(queryFactory
+                        .select(memberTeam.count())
+                        .from(memberTeam)
+                        .where(readModelWhere(shape)));
+                continue;
+            }
+            contentQueries[shape] = serialize(content(queryFactory, shape));
+            cursorQueries[shape] = serialize(content(queryFactory, shape).orderBy(user.age.asc(), user.id.asc()));
+            cursorQueries[shape | CURSOR] = serialize(content(queryFactory, shape | CURSOR)
+                    .orderBy(user.age.asc(), user.id.asc()));
+            // 팀 컬럼을 조회하지 않으므로 teamName 조건이 있을 때만 조인한다
+            JPAQuery<Long> count = queryFactory.select(user.count()).from(user);
+            if ((shape & TEAM_NAME) != 0) {
+                count.leftJoin(user.team, team);
+            }
+            countQueries[shape] = serialize(count.where(where(shape)));
+        }
+    }
+
+    /**
+     * 모든 모양의 JPQL 을 미리 파싱해서 플랜 캐시에 올린다. JPQL 오류도 기동 시점에 드러난다.
+     */
+    @PostConstruct
+    public void compile() {
+        EntityManager compiler = emf.createEntityManager();
+        try {
+            for (Compiled[] queries : new Compiled[][]{contentQueries, cursorQueries, countQueries}) {
+                for (Compiled query : queries) {
+                    if (query != null) {
+                        compiler.createQuery(query.jpql);
+                    }
+                }
+            }
+        } finally {
+            compiler.close();
+        }
+    }
+
+    /**
+     * 기동 후 JPQL 을 직렬화한 횟수 (요청마다 늘지 않아야 한다)
+     */
+    long serializations() {
+        return serializations.sum();
+    }
+
+    public List<MemberTeamDto> content(MemberSearchCondition condition) {
+        Search search = resolve(condition);
+        if (search.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        List<MemberTeamDto> result = rows(cacheable(query(contentQueries[search.shape], search, null), search.shape));
+        record(search, SearchKind.CONTENT, System.nanoTime() - start);
+        return result;
+    }
+
+    public List<MemberTeamDto> content(MemberSearchCondition condition, long offset, int limit) {
+        Search search = resolve(condition);
+        if (search.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        List<MemberTeamDto> result = rows(cacheable(query(contentQueries[search.shape], search, null), search.shape)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit));
+        record(search, SearchKind.CONTENT, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * 전방향 스크롤로 읽는 스트림, 반드시 닫아야 한다.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<MemberTeamDto> contentStream(MemberSearchCondition condition, int fetchSize) {
+        Search search = resolve(condition);
+        if (search.isEmpty()) {
+            return Stream.empty();
+        }
+        Stream<Object[]> rows = query(contentQueries[search.shape], search, null)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .getResultStream();
+        return rows.map(MemberTeamDtoMapper::map);
+    }
+
+    public List<MemberTeamDto> afterCursor(MemberSearchCondition condition, MemberCursor cursor, int limit) {
+        Search search = resolve(condition);
+        if (search.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int shape = search.shape | (cursor != null ? CURSOR : 0);
+        Query query = cacheable(query(cursorQueries[shape], search, cursor), shape);
+        long start = System.nanoTime();
+        List<MemberTeamDto> result = rows(query.setMaxResults(limit));
+        record(search, SearchKind.CURSOR, System.nanoTime() - start);
+        return result;
+    }
+
+    public long count(MemberSearchCondition condition) {
+        Search search = resolve(condition);
+        if (search.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        Number count = (Number) query(countQueries[search.shape], search, null).getSingleResult();
+        record(search, SearchKind.COUNT, System.nanoTime() - start);
+        return count != null ? count.longValue() : 0;
+    }
+
+    /**
+     * limit 건까지만 센다. 행을 JVM 으로 가져오지 않고 DB 에서 limit 을 건 서브쿼리를 센다.
+     * JPQL 은 from 절 서브쿼리를 못 쓰므로 MemberSearchSql 의 네이티브 SQL 로 실행한다.
+     */
+    public long cappedCount(MemberSearchCondition condition, long limit) {
+        MemberSearchSql sql = MemberSearchSql.cappedCount(condition, limit, i -> "?" + i);
+        Query query = em.createNativeQuery(sql.getSql());
+        List<Object> binds = sql.getBinds();
+        for (int i = 0; i < binds.size(); i++) {
+            query.setParameter(i + 1, binds.get(i));
+        }
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * n-gram 색인으로 찾은 id 목록 조건은 MemberSearchSql 로 같은 SQL 을 만들 수 없으므로 어드바이저에 넘기지 않는다
+     */
+    private void record(Search search, SearchKind kind, long nanos) {
+        if ((search.shape & MEMBER_IDS) == 0) {
+            indexAdvisor.record(search.condition, search.shape, kind, nanos);
+        }
+    }
+
+    /**
+     * "select new" 는 행마다 리플렉션으로 생성자를 부르므로 MemberTeamDtoMapper 와 같은 순서로 조회해서 직접 매핑한다
+     */
+    private static JPAQuery<MemberTeamDto> content(JPAQueryFactory queryFactory, int shape) {
+        return queryFactory
+                .select(new MemberTeamDtoMapper(
+                        user.id,
+                        user.username,
+                        user.age,
+                        team.id,
+                        team.name))
+                .from(user)
+                .leftJoin(user.team, team)
+                .where(where(shape));
+    }
+
+    private static JPAQuery<MemberTeamDto> readModelContent(JPAQueryFactory queryFactory, int shape) {
+        return queryFactory
+                .select(new MemberTeamDtoMapper(
+                        memberTeam.userId,
+                        memberTeam.username,
+                        memberTeam.age,
+                        memberTeam.teamId,
+                        memberTeam.teamName))
+                .from(memberTeam)
+                .where(readModelWhere(shape));
+    }
+
+    /**
+     * QueryDSL 쿼리를 JPQL 과 위치 파라미터(?1, ?2 ...) 값 목록으로 바꾼다. 값 자리의 Param 은 요청 때 채운다.
+     */
+    private Compiled serialize(JPAQuery<?> query) {
+        JPQLSerializer serializer = new JPQLSerializer(TEMPLATES, em);
+        serializer.serialize(query.getMetadata(), false, null);
+        serializations.increment();
+        return new Compiled(serializer.toString(), List.copyOf(serializer.getConstants()));
+    }
+
+    private Query query(Compiled compiled, Search search, MemberCursor cursor) {
+        Query query = em.createQuery(compiled.jpql);
+        for (int i = 0; i < compiled.constants.size(); i++) {
+            Object constant = compiled.constants.get(i);
+            query.setParameter(i + 1, constant instanceof Param ? valueOf((Param<?>) constant, search, cursor) : constant);
+        }
+        return query;
+    }
+
+    private static Object valueOf(Param<?> param, Search search, MemberCursor cursor) {
+        if (param == USERNAME_PARAM) {
+            return search.username;
+        } else if (param == MEMBER_IDS_PARAM) {
+            return search.memberIds;
+        } else if (param == TEAM_NAME_PARAM) {
+            return search.condition.getTeamName();
+        } else if (param == AGE_GOE_PARAM) {
+            return search.condition.getAgeGoe();
+        } else if (param == AGE_LOE_PARAM) {
+            return search.condition.getAgeLoe();
+        } else if (param == CURSOR_AGE_PARAM) {
+            return cursor.getAge();
+        } else if (param == CURSOR_ID_PARAM) {
+            return cursor.getMemberId();
+        }
+        throw new IllegalStateException("알 수 없는 파라미터: " + param.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<MemberTeamDto> rows(Query query) {
+        List<Object[]> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(MemberTeamDtoMapper.map(row));
+        }
+        return result;
+    }
+
+    /**
+     * querydsl.search.query-cache 가 켜져 있으면 결과를 2차 캐시의 member-search 영역에 둔다.
+     * users, team 테이블이 바뀌면 Hibernate 가 알아서 무효화한다.
+     * member_team 은 JDBC 로 직접 쓰므로 Hibernate 가 변경을 모른다. 읽기 모델 조회는 캐시하지 않는다.
+     */
+    private Query cacheable(Query query, int shape) {
+        if (!queryCacheEnabled || (shape & READ_MODEL) != 0) {
+            return query;
+        }
+        return query.setHint(QueryHints.CACHEABLE, true)
+                .setHint(QueryHints.CACHE_REGION, MEMBER_SEARCH_REGION);
+    }
+
+    /**
+     * 조건의 모양과 회원명 바인딩 값을 정한다.
+     * CONTAINS 는 n-gram 색인이 답할 수 있으면 id 목록으로 좁히고(like 도 같이 건다), 아니면 like '%x%' 로만 찾는다.
+     * 이 트랜잭션에 아직 색인에 반영되지 않은(flush 전이거나 커밋 전인) 변경이 있으면 색인을 쓰지 않는다.
+     */
+    private Search resolve(MemberSearchCondition condition) {
+        int shape = 0;
+        String username = null;
+        List<Long> memberIds = null;
+        if (hasText(condition.getUsername())) {
+            UsernameMatch match = UsernameMatch.of(condition);
+            if (match == UsernameMatch.CONTAINS && canUseNgramIndex()) {
+                memberIds = ngramIndex.findContaining(condition.getUsername());
+            }
+            if (memberIds != null) {
+                // 색인이 늦게 따라가서 틀린 id 를 줄 수 있으므로 like 조건도 같이 건다
+                shape |= MEMBER_IDS | USERNAME | USERNAME_LIKE;
+                username = match.likePattern(condition.getUsername());
+            } else if (match == UsernameMatch.EXACT) {
+                shape |= USERNAME;
+                username = condition.getUsername();
+            } else {
+                shape |= USERNAME | USERNAME_LIKE;
+                username = match.likePattern(condition.getUsername());
+            }
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        if (condition.isReadModel()) {
+            shape |= READ_MODEL;
+        }
+        return new Search(condition, shape, username, memberIds);
+    }
+
+    private boolean canUseNgramIndex() {
+        if (ngramIndex.hasPendingChanges()) {
+            return false;
+        }
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || !em.unwrap(Session.class).isDirty();
+    }
+
+    private static boolean isValid(int shape) {
+        if ((shape & USERNAME_LIKE) != 0 && (shape & USERNAME) == 0) {
+            return false;
+        }
+        return (shape & MEMBER_IDS) == 0 || (shape & USERNAME_LIKE) != 0;
+    }
+
+    private static Predicate[] where(int shape) {
+        return new Predicate[]{
+                usernameMatches(user.username, shape),
+                memberIdIn(user.id, shape),
+                (shape & TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME_PARAM) : null,
+                ageGoe(user.age, shape),
+                ageLoe(user.age, shape),
+                afterCursor(user.age, user.id, shape)
+        };
+    }
+
+    private static Predicate[] readModelWhere(int shape) {
+        return new Predicate[]{
+                usernameMatches(memberTeam.username, shape),
+                memberIdIn(memberTeam.userId, shape),
+                (shape & TEAM_NAME) != 0 ? memberTeam.teamName.eq(TEAM_NAME_PARAM) : null,
+                ageGoe(memberTeam.age, shape),
+                ageLoe(memberTeam.age, shape),
+                afterCursor(memberTeam.age, memberTeam.userId, shape)
+        };
+    }
+
+    private static BooleanExpression usernameMatches(StringPath username, int shape) {
+        if ((shape & USERNAME_LIKE) != 0) {
+            return username.like(USERNAME_PARAM, UsernameMatch.LIKE_ESCAPE);
+        }
+        return (shape & USERNAME) != 0 ? username.eq(USERNAME_PARAM) : null;
+    }
+
+    private static BooleanExpression memberIdIn(NumberPath<Long> id, int shape) {
+        return (shape & MEMBER_IDS) != 0 ? Expressions.booleanTemplate("{0} in ({1})", id, MEMBER_IDS_PARAM) : null;
+    }
+
+    private static BooleanExpression ageGoe(NumberPath<Integer> age, int shape) {
+        return (shape & AGE_GOE) != 0 ? age.goe(AGE_GOE_PARAM) : null;
+    }
+
+    private static BooleanExpression ageLoe(NumberPath<Integer> age, int shape) {
+        return (shape & AGE_LOE) != 0 ? age.loe(AGE_LOE_PARAM) : null;
+    }
+
+    /**
+     * (age, id) 가 커서보다 뒤인 행
+     */
+    private static BooleanExpression afterCursor(NumberPath<Integer> age, NumberPath<Long> id, int shape) {
+        if ((shape & CURSOR) == 0) {
+            return null;
+        }
+        return age.gt(CURSOR_AGE_PARAM)
+                .or(age.eq(CURSOR_AGE_PARAM).and(id.gt(CURSOR_ID_PARAM)));
+    }
+
+    private static class Compiled {
+        private final String jpql;
+        private final List<Object> constants;
+
+        private Compiled(String jpql, List<Object> constants) {
+            this.jpql = jpql;
+            this.constants = constants;
+        }
+    }
+
+    private static class Search {
+        private final MemberSearchCondition condition;
+        private final int shape;
+        private final String username;
+        private final List<Long> memberIds;
+
+        private Search(MemberSearchCondition condition, int shape, String username, List<Long> memberIds) {
+            this.condition = condition;
+            this.shape = shape;
+            this.username = username;
+            this.memberIds = memberIds;
+        }
+
+        /**
+         * 색인으로 찾은 회원이 없으면 쿼리를 보낼 필요가 없다
+         */
+        private boolean isEmpty() {
+            return memberIds != null && memberIds.isEmpty();
+        }
+    }
+}
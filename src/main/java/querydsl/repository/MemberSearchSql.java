@@ -0,0 +1,111 @@
+package querydsl.repository;
+
+import lombok.Getter;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.UsernameMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.IntFunction;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * JPA 를 거치지 않는 경로(R2DBC 등)에서 쓰는 MemberSearchCondition 검색 SQL
+ * MemberSearchQueries 의 JPQL 과 같은 조건, 같은 조인 규칙을 네이티브 SQL 로 만든다.
+ * 바인딩 자리 표시는 드라이버마다 다르므로 ($1, ?) 밖에서 받는다.
+ */
+@Getter
+public class MemberSearchSql {
+
+    private static final String CONTENT_SELECT = "select u.user_id, u.username, u.age, t.team_id, t.name as team_name"
+            + " from users u left join team t on u.team_id = t.team_id";
+    // 읽기 모델도 별칭을 u 로 두어 where 절을 같이 쓴다
+    private static final String READ_MODEL_SELECT = "select u.user_id, u.username, u.age, u.team_id, u.team_name"
+            + " from member_team u";
+
+    private final String sql;
+    private final List<Object> binds;
+
+    private MemberSearchSql(String sql, List<Object> binds) {
+        this.sql = sql;
+        this.binds = binds;
+    }
+
+    public static MemberSearchSql content(MemberSearchCondition condition, IntFunction<String> placeholder) {
+        List<Object> binds = new ArrayList<>();
+        return new MemberSearchSql(select(condition) + where(condition, binds, placeholder), binds);
+    }
+
+    public static MemberSearchSql content(MemberSearchCondition condition, long offset, int limit,
+                                          IntFunction<String> placeholder) {
+        List<Object> binds = new ArrayList<>();
+        String where = where(condition, binds, placeholder);
+        binds.add(limit);
+        String limitParam = placeholder.apply(binds.size());
+        binds.add(offset);
+        String offsetParam = placeholder.apply(binds.size());
+        return new MemberSearchSql(select(condition) + where + " limit " + limitParam + " offset " + offsetParam, binds);
+    }
+
+    public static MemberSearchSql count(MemberSearchCondition condition, IntFunction<String> placeholder) {
+        List<Object> binds = new ArrayList<>();
+        if (condition.isReadModel()) {
+            return new MemberSearchSql("select count(*) from member_team u" + where(condition, binds, placeholder), binds);
+        }
+        // 팀 컬럼을 조회하지 않으므로 teamName 조건이 있을 때만 조인한다
+        String join = hasText(condition.getTeamName()) ? " left join team t on u.team_id = t.team_id" : "";
+        return new MemberSearchSql("select count(*) from users u" + join + where(condition, binds, placeholder), binds);
+    }
+
+    /**
+     * limit 건까지만 세는 카운트, 조건에 맞는 행이 많아도 limit 건을 읽으면 멈춘다
+     */
+    public static MemberSearchSql cappedCount(MemberSearchCondition condition, long limit,
+                                              IntFunction<String> placeholder) {
+        List<Object> binds = new ArrayList<>();
+        String from = condition.isReadModel() ? " from member_team u" : " from users u";
+        String join = !condition.isReadModel() && hasText(condition.getTeamName())
+                ? " left join team t on u.team_id = t.team_id" : "";
+        String where = where(condition, binds, placeholder);
+        binds.add(limit);
+        return new MemberSearchSql("select count(*) from (select 1" + from + join + where
+                + " limit " + placeholder.apply(binds.size()) + ") capped", binds);
+    }
+
+    /**
+     * 정렬을 붙인 새 SQL (orderBy 는 " order by ..." 형태, 비어 있으면 그대로)
+     */
+    public MemberSearchSql orderBy(String orderBy) {
+        return orderBy.isEmpty() ? this : new MemberSearchSql(sql + orderBy, binds);
+    }
+
+    private static String select(MemberSearchCondition condition) {
+        return condition.isReadModel() ? READ_MODEL_SELECT : CONTENT_SELECT;
+    }
+
+    private static String where(MemberSearchCondition condition, List<Object> binds, IntFunction<String> placeholder) {
+        StringJoiner where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+        if (hasText(condition.getUsername())) {
+            UsernameMatch match = UsernameMatch.of(condition);
+            binds.add(match.likePattern(condition.getUsername()));
+            where.add(match == UsernameMatch.EXACT
+                    ? "u.username = " + placeholder.apply(binds.size())
+                    : "u.username like " + placeholder.apply(binds.size()) + " escape '" + UsernameMatch.LIKE_ESCAPE + "'");
+        }
+        if (hasText(condition.getTeamName())) {
+            binds.add(condition.getTeamName());
+            where.add((condition.isReadModel() ? "u.team_name = " : "t.name = ") + placeholder.apply(binds.size()));
+        }
+        if (condition.getAgeGoe() != null) {
+            binds.add(condition.getAgeGoe());
+            where.add("u.age >= " + placeholder.apply(binds.size()));
+        }
+        if (condition.getAgeLoe() != null) {
+            binds.add(condition.getAgeLoe());
+            where.add("u.age <= " + placeholder.apply(binds.size()));
+        }
+        return where.toString();
+    }
+}
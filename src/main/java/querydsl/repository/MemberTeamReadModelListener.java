@@ -0,0 +1,209 @@
+package querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * member_team 읽기 모델 갱신
+ *
+ * Hibernate 이벤트 리스너로 User, Team 의 insert/update/delete 를 받아 세션별로 모아 두었다가,
+ * 커밋 직전(flush 가 끝난 뒤) 같은 커넥션에서 JDBC 배치로 반영한다. 원본과 같은 트랜잭션이므로 롤백도 같이 된다.
+ * 팀 이름 변경은 그 팀 회원 행 전체를 update 한 번으로 바꾼다.
+ * upsert 는 표준 MERGE ... USING 이라 H2 전용 문법(MERGE ... KEY)에 묶이지 않는다. MySQL 은 지원하지 않는다.
+ * 엔티티 이벤트가 없는 벌크 update 는 UsersBulkUpdatedEvent 의 id 구간을 users 에서 다시 읽어 맞춘다.
+ */
+@Slf4j
+@Component
+public class MemberTeamReadModelListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String DELETE_USER = "delete from member_team where user_id = ?";
+    private static final String RENAME_TEAM = "update member_team set team_name = ? where team_id = ?";
+    private static final String DETACH_TEAM = "update member_team set team_id = null, team_name = null where team_id = ?";
+    // 표준 MERGE ... USING (H2 2.x, PostgreSQL 15+, Oracle), %s 에 users 조건
+    private static final String MERGE_FROM_USERS = "merge into member_team m"
+            + " using (select u.user_id, u.username, u.age, u.team_id, t.name as team_name"
+            + " from users u left join team t on u.team_id = t.team_id%s) s"
+            + " on (m.user_id = s.user_id)"
+            + " when matched then update set username = s.username, age = s.age,"
+            + " team_id = s.team_id, team_name = s.team_name"
+            + " when not matched then insert (user_id, username, age, team_id, team_name)"
+            + " values (s.user_id, s.username, s.age, s.team_id, s.team_name)";
+    private static final String MERGE_USER = String.format(MERGE_FROM_USERS, " where u.user_id = ?");
+    private static final String MERGE_USERS_BETWEEN = String.format(MERGE_FROM_USERS,
+            " where u.user_id between :fromId and :toId");
+    private static final String MERGE_ALL_USERS = String.format(MERGE_FROM_USERS, "");
+
+    private final Map<EventSource, List<Change>> pending = new ConcurrentHashMap<>();
+    private final EntityManagerFactory emf;
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+
+    public MemberTeamReadModelListener(EntityManagerFactory emf, EntityManager em,
+                                       PlatformTransactionManager transactionManager) {
+        this.emf = emf;
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof User) {
+            mergeUser(event.getSession(), (User) event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User) {
+            mergeUser(event.getSession(), (User) event.getEntity());
+        } else if (event.getEntity() instanceof Team) {
+            Team team = (Team) event.getEntity();
+            enqueue(event.getSession(), RENAME_TEAM, team.getName(), team.getId());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User) {
+            enqueue(event.getSession(), DELETE_USER, event.getId());
+        } else if (event.getEntity() instanceof Team) {
+            enqueue(event.getSession(), DETACH_TEAM, event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @EventListener
+    public void onBulkUpdate(UsersBulkUpdatedEvent event) {
+        transactionTemplate.executeWithoutResult(status -> em
+                .createNativeQuery(MERGE_USERS_BETWEEN)
+                .setParameter("fromId", event.getFromId())
+                .setParameter("toId", event.getToId())
+                .executeUpdate());
+    }
+
+    /**
+     * ddl-auto 가 create 가 아니라 기존 데이터가 남아 있는데 읽기 모델이 비어 있으면 한 번에 채운다
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Number rows = (Number) em.createNativeQuery("select count(*) from member_team").getSingleResult();
+            if (rows.longValue() == 0) {
+                int merged = em.createNativeQuery(MERGE_ALL_USERS).executeUpdate();
+                log.info("member_team 읽기 모델 채움. rows={}", merged);
+            }
+        });
+    }
+
+    /**
+     * 커밋 직전에는 flush 가 끝났으므로 같은 커넥션에서 users 를 다시 읽어 맞춘다
+     */
+    private void mergeUser(EventSource session, User user) {
+        enqueue(session, MERGE_USER, user.getId());
+    }
+
+    /**
+     * 프록시를 초기화하지 않고 팀 id 를 얻는다
+     */
+    static Long teamId(Team team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team.getId();
+    }
+
+    private void enqueue(EventSource session, String sql, Object... params) {
+        List<Change> changes = pending.get(session);
+        if (changes == null) {
+            changes = new ArrayList<>();
+            pending.put(session, changes);
+            session.getActionQueue().registerProcess(
+                    (BeforeTransactionCompletionProcess) s -> write(session, pending.remove(session)));
+            session.getActionQueue().registerProcess(
+                    (AfterTransactionCompletionProcess) (success, s) -> pending.remove(session));
+        }
+        changes.add(new Change(sql, params));
+    }
+
+    /**
+     * 같은 SQL 이 이어지는 변경끼리 JDBC 배치로 묶는다
+     */
+    private static void write(EventSource session, List<Change> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        session.doWork(connection -> {
+            int i = 0;
+            while (i < changes.size()) {
+                String sql = changes.get(i).sql;
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (; i < changes.size() && changes.get(i).sql.equals(sql); i++) {
+                        Object[] params = changes.get(i).params;
+                        for (int p = 0; p < params.length; p++) {
+                            statement.setObject(p + 1, params[p]);
+                        }
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+        });
+    }
+
+    private static class Change {
+        private final String sql;
+        private final Object[] params;
+
+        private Change(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+}
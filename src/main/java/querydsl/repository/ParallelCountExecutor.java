@@ -0,0 +1,100 @@
+package querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 카운트 쿼리를 내용 조회와 동시에 별도 커넥션에서 실행한다.
+ * 스레드 수와 대기열이 제한된 풀을 쓰고, 풀이 가득 차면 호출 스레드에서 직접 센다.
+ * 호출 쪽 트랜잭션이 있으면 커밋되지 않은 변경을 다른 커넥션에서 볼 수 없으므로 병렬로 돌리지 않는다.
+ *
+ * 트레이드오프: 카운트는 내용 조회 결과를 보기 전에 시작하므로, 결국 쓰지 않을 카운트(짧은 마지막 페이지)도 돌고,
+ * 요청 하나가 커넥션을 두 개까지 쓴다. 추가로 쓰는 커넥션은 최대 threads 개이므로
+ * DbConcurrencyLimitFilter 는 그만큼 뺀 수만 들여보낸다 (VirtualThreadConfig).
+ * 이미 시작한 카운트는 취소하지 않는다. H2 JDBC 는 인터럽트로 멈추지 않고, 파일 DB 면 인터럽트가 채널을 닫는다.
+ */
+@Component
+public class ParallelCountExecutor {
+
+    private final boolean enabled;
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ParallelCountExecutor(PlatformTransactionManager transactionManager,
+                                 @Value("${querydsl.search.parallel-count.enabled:false}") boolean enabled,
+                                 @Value("${querydsl.search.parallel-count.threads:4}") int threads,
+                                 @Value("${querydsl.search.parallel-count.queue-capacity:100}") int queueCapacity) {
+        this.enabled = enabled;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("search-count-"));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isAvailable() {
+        return enabled && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    public PendingCount start(LongSupplier counter) {
+        try {
+            return new PendingCount(executor.submit(() -> readOnlyTransaction.execute(status -> counter.getAsLong())), counter);
+        } catch (RejectedExecutionException e) {
+            return new PendingCount(null, counter);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static class PendingCount {
+        private final Future<Long> future;
+        private final LongSupplier fallback;
+
+        private PendingCount(Future<Long> future, LongSupplier fallback) {
+            this.future = future;
+            this.fallback = fallback;
+        }
+
+        public long get() {
+            if (future == null) {
+                return fallback.getAsLong();
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("카운트 쿼리를 기다리는 중 인터럽트됨", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        /**
+         * 카운트가 필요 없었던 경우(짧은 첫 페이지 등) 아직 대기열에 있으면 빼낸다. 이미 돌고 있으면 끝까지 둔다.
+         */
+        public void cancel() {
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package querydsl.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 같은 검색 합치기 (single flight)
+ *
+ * 메서드와 키(정규화한 조건, 페이지)가 같은 검색이 이미 실행 중이면 DB 에 다시 가지 않고 그 결과를 기다린다.
+ * 기다린 호출과 먼저 실행한 호출은 각자 결과의 사본을 받으므로 한쪽에서 바꿔도 다른 쪽에 보이지 않는다.
+ * 실행 중일 때만 합치고 끝난 결과는 남기지 않는다.
+ *
+ * 먼저 시작한 쿼리는 나중에 온 호출보다 이른 시점을 읽으므로, 그 사이에 커밋된 변경이 빠질 수 있다.
+ * 그래서 실행이 시작된 뒤로 User, Team 변경이 커밋되었으면(MemberCountCache 세대가 바뀌었으면) 합치지 않고 새로 실행한다.
+ * 남는 틈은 커밋은 끝났지만 afterCommit 이 아직 돌지 않은 짧은 구간, 그리고 엔티티 이벤트나
+ * UsersBulkUpdatedEvent 를 거치지 않은 변경(다른 인스턴스, 직접 SQL)뿐이다.
+ * 트랜잭션 안에서는 아직 커밋되지 않은 변경이 결과에 섞일 수 있으므로 합치지 않는다.
+ *
+ * 기다리는 호출도 DbConcurrencyLimitFilter 의 허가를 쥐고 있으므로 join-timeout 까지만 기다리고,
+ * 넘으면 직접 실행한다.
+ *
+ * querydsl.search.single-flight.calls      method, result(executed/coalesced/timed-out) 태그, 합친 비율 = coalesced / 전체
+ * querydsl.search.single-flight.waiters    실행 한 번을 함께 기다린 호출 수
+ * querydsl.search.single-flight.in-flight  지금 실행 중인 검색 수
+ */
+@Component
+public class SearchSingleFlight {
+
+    private static final Object TIMED_OUT = new Object();
+
+    private final Map<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+    private final MemberCountCache countCache;
+    private final boolean enabled;
+    private final long joinTimeoutNanos;
+
+    public SearchSingleFlight(MeterRegistry registry, MemberCountCache countCache,
+                              @Value("${querydsl.search.single-flight.enabled:true}") boolean enabled,
+                              @Value("${querydsl.search.single-flight.join-timeout:2s}") Duration joinTimeout) {
+        this.registry = registry;
+        this.countCache = countCache;
+        this.enabled = enabled;
+        this.joinTimeoutNanos = joinTimeout.toNanos();
+        Gauge.builder("querydsl.search.single-flight.in-flight", inFlight, Map::size).register(registry);
+    }
+
+    /**
+     * @param copier 결과를 다른 호출에 넘길 때 쓰는 사본 생성
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String method, List<?> key, Supplier<T> loader, UnaryOperator<T> copier) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+
+        Meters m = meters.computeIfAbsent(method, name -> new Meters(registry, name));
+        Key flightKey = new Key(method, key);
+        // 세대를 쿼리보다 먼저 읽어야, 같은 세대인 동안에는 결과가 나중에 온 호출이 직접 읽은 것보다 낡지 않다
+        Flight created = new Flight(countCache.generation());
+        Flight flight = inFlight.compute(flightKey, (k, current) -> {
+            if (current == null || current.generation < created.generation) {
+                return created; // 앞선 실행은 그대로 끝나고, remove(key, flight) 는 새 실행을 지우지 않는다
+            }
+            current.waiters++;
+            return current;
+        });
+
+        if (flight != created) {
+            Object result = join(flight.result, joinTimeoutNanos);
+            if (result == TIMED_OUT) {
+                m.timedOut.increment();
+                return loader.get();
+            }
+            m.coalesced.increment();
+            return copier.apply((T) result);
+        }
+
+        m.executed.increment();
+        T result;
+        try {
+            result = loader.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(flightKey, created);
+            created.result.completeExceptionally(e);
+            throw e;
+        }
+        // compute 와 remove 는 같은 키에서 원자적이므로 remove 뒤로는 waiters 가 바뀌지 않는다
+        inFlight.remove(flightKey, created);
+        int waiters = created.waiters;
+        created.result.complete(result);
+        m.waiters.record(waiters);
+        // 기다린 호출들이 원본에서 사본을 뜨므로 원본은 아무도 바꾸지 않게 둔다
+        return waiters > 0 ? copier.apply(result) : result;
+    }
+
+    /**
+     * timeoutNanos 안에 끝나지 않으면 TIMED_OUT
+     */
+    private static Object join(CompletableFuture<Object> result, long timeoutNanos) {
+        try {
+            return result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return TIMED_OUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the same search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class Key {
+        private final String method;
+        private final List<?> args;
+
+        private Key(String method, List<?> args) {
+            this.method = method;
+            this.args = args;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return method.equals(other.method) && args.equals(other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * method.hashCode() + args.hashCode();
+        }
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final long generation;
+        private int waiters; // inFlight.compute 안에서만 바꾼다
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private static final class Meters {
+        private final Counter executed;
+        private final Counter coalesced;
+        private final Counter timedOut;
+        private final DistributionSummary waiters;
+
+        private Meters(MeterRegistry registry, String method) {
+            this.executed = counter(registry, method, "executed");
+            this.coalesced = counter(registry, method, "coalesced");
+            this.timedOut = counter(registry, method, "timed-out");
+            this.waiters = DistributionSummary.builder("querydsl.search.single-flight.waiters")
+                    .tag("method", method)
+                    .register(registry);
+        }
+
+        private static Counter counter(MeterRegistry registry, String method, String result) {
+            return Counter.builder("querydsl.search.single-flight.calls")
+                    .tag("method", method)
+                    .tag("result", result)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import querydsl.dto.MemberTeamDto;
+import querydsl.dto.TeamMembersDto;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static querydsl.entity.QTeam.team;
+
+@Repository
+public class TeamQueryRepository {
+
+    /**
+     * 팀별로 user_id 순서 번호(rn)와 전체 회원 수를 붙여서 요청한 구간만 읽는다.
+     * rn = 1 행은 구간 밖이어도 회원 수를 알기 위해 같이 읽고 메모리에서 버린다.
+     * 네이티브 SQL 이라 H2 에서만 확인했다. window 함수(row_number, count over)가 없는 DB(MySQL 5.7 등)에서는 동작하지 않는다.
+     */
+    private static final String MEMBERS_OF_TEAMS = ""
+            + "select m.user_id, m.username, m.age, m.team_id, m.rn, m.member_count from ("
+            + " select u.user_id, u.username, u.age, u.team_id,"
+            + " row_number() over (partition by u.team_id order by u.user_id) as rn,"
+            + " count(*) over (partition by u.team_id) as member_count"
+            + " from users u where u.team_id in (:teamIds)"
+            + ") m where (m.rn > :memberOffset and m.rn <= :memberEnd) or m.rn = 1"
+            + " order by m.team_id, m.user_id";
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    public TeamQueryRepository(EntityManager em) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    /**
+     * 팀 목록과 팀별 회원 목록
+     * 팀 페이지 조회 한 번, 그 팀들의 회원을 IN 으로 한 번 읽어서 메모리에서 조립한다.
+     * Team.users 를 건드리지 않으므로 팀 수만큼 쿼리가 나가지도(N+1), 페치 조인으로 행이 뻥튀기되지도 않는다.
+     */
+    public Page<TeamMembersDto> findTeamsWithMembers(Pageable pageable, int memberOffset, int memberSize) {
+        List<Tuple> teams = queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .orderBy(team.id.asc())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        Map<Long, TeamMembersDto> content = new LinkedHashMap<>();
+        for (Tuple tuple : teams) {
+            Long teamId = tuple.get(team.id);
+            content.put(teamId, new TeamMembersDto(teamId, tuple.get(team.name)));
+        }
+        if (!content.isEmpty()) {
+            fillMembers(content, memberOffset, memberSize);
+        }
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(team.count())
+                .from(team);
+
+        return PageableExecutionUtils.getPage(List.copyOf(content.values()), pageable,
+                countQuery::fetchOne);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fillMembers(Map<Long, TeamMembersDto> teams, int memberOffset, int memberSize) {
+        List<Object[]> rows = em.createNativeQuery(MEMBERS_OF_TEAMS)
+                .setParameter("teamIds", teams.keySet())
+                .setParameter("memberOffset", memberOffset)
+                .setParameter("memberEnd", (long) memberOffset + memberSize) // int 로 더하면 넘칠 수 있다
+                .getResultList();
+
+        for (Object[] row : rows) {
+            TeamMembersDto teamMembers = teams.get(((Number) row[3]).longValue());
+            teamMembers.setMemberCount(((Number) row[5]).longValue());
+            if (((Number) row[4]).longValue() <= memberOffset) {
+                continue; // 회원 수만 알려고 읽은 rn = 1 행
+            }
+            teamMembers.getMembers().add(new MemberTeamDto(
+                    ((Number) row[0]).longValue(),
+                    (String) row[1],
+                    ((Number) row[2]).intValue(),
+                    teamMembers.getTeamId(),
+                    teamMembers.getTeamName()));
+        }
+    }
+}
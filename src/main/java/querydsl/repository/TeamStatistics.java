@@ -0,0 +1,260 @@
+package querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.TeamStatsDto;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static querydsl.repository.MemberTeamReadModelListener.teamId;
+
+/**
+ * 팀별 회원 수, 나이 합계/평균/최소/최대
+ *
+ * 팀마다 나이별 회원 수(히스토그램)를 메모리에 두고, User, Team 의 Hibernate 이벤트로 커밋된 변경만큼 더하고 뺀다.
+ * 조회는 메모리만 읽으므로 users 를 group by 하지 않는다. 삭제, 팀 이동이 있어도 최소/최대를 히스토그램에서 바로 구한다.
+ *
+ * 엔티티 이벤트를 거치지 않는 변경(벌크 update, 이전 상태를 모르는 update)이 있으면 dirty 로 표시해 두고
+ * 곧 다시 집계한다. 그 밖의 어긋남도 reconcile-interval 마다 전체를 다시 집계해서 바로잡는다.
+ *
+ * 재집계 중에 커밋된 변경은 집계 쿼리에 들어갔는지 알 수 없다. 교체 전 맵에 더하면 빠지고, 교체 후 맵에 더하면 두 번 센다.
+ * 그래서 첫 변경부터 반영할 때까지 재집계와 겹친 트랜잭션은 변경을 반영한 뒤 dirty 로 표시해서 곧 다시 집계하게 한다.
+ */
+@Slf4j
+@Component
+public class TeamStatistics implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final Map<EventSource, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong rebuilds = new AtomicLong(); // 재집계 시작, 끝마다 증가 (홀수면 재집계 중)
+    private final EntityManagerFactory emf;
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTransaction;
+    private volatile Map<Long, TeamAggregate> teams = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public TeamStatistics(EntityManagerFactory emf, EntityManager em, PlatformTransactionManager transactionManager) {
+        this.emf = emf;
+        this.em = em;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    public List<TeamStatsDto> findAll() {
+        List<TeamStatsDto> result = new ArrayList<>();
+        teams.forEach((teamId, aggregate) -> result.add(aggregate.toDto(teamId)));
+        result.sort(Comparator.comparing(TeamStatsDto::getTeamId));
+        return result;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof User) {
+            User user = (User) event.getEntity();
+            Long teamId = teamId(user.getTeam());
+            int age = user.getAge();
+            afterCommit(event.getSession(), () -> add(teamId, age, 1));
+        } else if (event.getEntity() instanceof Team) {
+            Team team = (Team) event.getEntity();
+            Long teamId = team.getId();
+            String name = team.getName();
+            afterCommit(event.getSession(), () -> aggregate(teamId).name = name);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User) {
+            User user = (User) event.getEntity();
+            Object[] oldState = event.getOldState();
+            if (oldState == null) {
+                afterCommit(event.getSession(), () -> dirty = true); // 이전 팀, 나이를 모른다
+                return;
+            }
+            EntityPersister persister = event.getPersister();
+            Long oldTeamId = teamId((Team) oldState[propertyIndex(persister, "team")]);
+            int oldAge = (Integer) oldState[propertyIndex(persister, "age")];
+            Long newTeamId = teamId(user.getTeam());
+            int newAge = user.getAge();
+            if (!Objects.equals(oldTeamId, newTeamId) || oldAge != newAge) {
+                afterCommit(event.getSession(), () -> {
+                    add(oldTeamId, oldAge, -1);
+                    add(newTeamId, newAge, 1);
+                });
+            }
+        } else if (event.getEntity() instanceof Team) {
+            Team team = (Team) event.getEntity();
+            Long teamId = team.getId();
+            String name = team.getName();
+            afterCommit(event.getSession(), () -> aggregate(teamId).name = name);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User) {
+            Object[] state = event.getDeletedState();
+            EntityPersister persister = event.getPersister();
+            Long teamId = teamId((Team) state[propertyIndex(persister, "team")]);
+            int age = (Integer) state[propertyIndex(persister, "age")];
+            afterCommit(event.getSession(), () -> add(teamId, age, -1));
+        } else if (event.getEntity() instanceof Team) {
+            Long teamId = (Long) event.getId();
+            afterCommit(event.getSession(), () -> teams.remove(teamId));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * 벌크 update 는 어떤 회원이 어떻게 바뀌었는지 모르므로 다시 집계하게 한다.
+     * 청크마다 이벤트가 오므로 여기서 바로 집계하지 않고 reconcileIfDirty 에서 한 번에 한다.
+     */
+    @EventListener
+    public void onBulkUpdate(UsersBulkUpdatedEvent event) {
+        dirty = true;
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.team-stats.dirty-check-interval:PT5S}")
+    public void reconcileIfDirty() {
+        if (dirty) {
+            reconcile();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${querydsl.team-stats.reconcile-interval:PT10M}",
+            initialDelayString = "${querydsl.team-stats.reconcile-interval:PT10M}")
+    public synchronized void reconcile() {
+        dirty = false;
+        long start = System.currentTimeMillis();
+        Map<Long, TeamAggregate> rebuilt = new ConcurrentHashMap<>();
+        rebuilds.incrementAndGet();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                em.createQuery("select t.id, t.name from Team t", Object[].class)
+                        .getResultList()
+                        .forEach(row -> rebuilt.computeIfAbsent((Long) row[0], id -> new TeamAggregate()).name = (String) row[1]);
+                em.createQuery("select u.team.id, u.age, count(u) from users u"
+                                + " where u.team is not null group by u.team.id, u.age", Object[].class)
+                        .getResultList()
+                        .forEach(row -> rebuilt.computeIfAbsent((Long) row[0], id -> new TeamAggregate())
+                                .add((Integer) row[1], (Long) row[2]));
+            });
+            teams = rebuilt;
+        } finally {
+            rebuilds.incrementAndGet();
+        }
+        log.debug("팀 통계 재집계. teams={}, {}ms", rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    private void add(Long teamId, int age, long delta) {
+        if (teamId != null) {
+            aggregate(teamId).add(age, delta);
+        }
+    }
+
+    private TeamAggregate aggregate(Long teamId) {
+        return teams.computeIfAbsent(teamId, id -> new TeamAggregate());
+    }
+
+    private static int propertyIndex(EntityPersister persister, String property) {
+        return persister.getEntityMetamodel().getPropertyIndex(property);
+    }
+
+    /**
+     * 롤백된 변경이 반영되지 않도록 세션별로 모아 두었다가 커밋에 성공하면 반영한다
+     */
+    private void afterCommit(EventSource session, Runnable change) {
+        Pending changes = pending.get(session);
+        if (changes == null) {
+            changes = new Pending(rebuilds.get());
+            pending.put(session, changes);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> {
+                Pending committed = pending.remove(session);
+                if (success && committed != null) {
+                    committed.changes.forEach(Runnable::run);
+                    // 반영을 마친 뒤에 확인해야 반영하는 도중에 시작한 재집계도 잡힌다
+                    if (committed.rebuild != rebuilds.get() || committed.rebuild % 2 != 0) {
+                        dirty = true;
+                    }
+                }
+            });
+        }
+        changes.changes.add(change);
+    }
+
+    private static class Pending {
+        private final long rebuild; // 첫 변경 때의 rebuilds
+        private final List<Runnable> changes = new ArrayList<>();
+
+        private Pending(long rebuild) {
+            this.rebuild = rebuild;
+        }
+    }
+
+    private static class TeamAggregate {
+        private volatile String name;
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+        private long count;
+        private long sum;
+
+        synchronized void add(int age, long delta) {
+            long members = ages.getOrDefault(age, 0L) + delta;
+            if (members > 0) {
+                ages.put(age, members);
+            } else {
+                ages.remove(age);
+            }
+            count += delta;
+            sum += age * delta;
+        }
+
+        synchronized TeamStatsDto toDto(Long teamId) {
+            return new TeamStatsDto(teamId, name, count, sum,
+                    ages.isEmpty() ? null : ages.firstKey(),
+                    ages.isEmpty() ? null : ages.lastKey());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.BulkProgress;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.UsernameMatch;
+
+import javax.persistence.EntityManager;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import static org.springframework.util.StringUtils.hasText;
+import static querydsl.entity.QTeam.team;
+import static querydsl.entity.QUser.user;
+
+/**
+ * 청크 단위 벌크 update
+ *
+ * 한 번에 테이블 전체를 update 하면 긴 트랜잭션 동안 락을 잡고 있으므로,
+ * user_id 구간(chunk-size)마다 따로 커밋해서 온라인 트래픽이 끼어들 수 있게 한다.
+ * 청크마다 영속성 컨텍스트를 비워서 이미 조회된 엔티티가 낡은 값을 들고 있지 않게 한다.
+ * 트랜잭션은 없어도 요청에 영속성 컨텍스트가 묶여 있으면(open-in-view) 청크 트랜잭션이 그것을 같이 쓰므로,
+ * 호출 전에 조회한 엔티티는 준영속이 되고 다시 조회하면 바뀐 값을 읽는다.
+ */
+@Component
+public class UserBulkOperations {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public UserBulkOperations(EntityManager em, PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${querydsl.bulk.chunk-size:1000}") int chunkSize) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    public long rename(MemberSearchCondition condition, String username, Consumer<BulkProgress> progress) {
+        return execute(condition, update -> update.set(user.username, username), progress);
+    }
+
+    public long addAge(MemberSearchCondition condition, int amount, Consumer<BulkProgress> progress) {
+        return execute(condition, update -> update.set(user.age, user.age.add(amount)), progress);
+    }
+
+    private long execute(MemberSearchCondition condition, UnaryOperator<JPAUpdateClause> setter,
+                         Consumer<BulkProgress> progress) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("청크마다 커밋해야 하므로 트랜잭션 밖에서 호출해야 합니다.");
+        }
+
+        Tuple range = queryFactory
+                .select(user.id.min(), user.id.max())
+                .from(user)
+                .where(matches(condition))
+                .fetchOne();
+        if (range == null || range.get(user.id.min()) == null) {
+            return 0;
+        }
+        long minId = range.get(user.id.min());
+        long maxId = range.get(user.id.max());
+
+        long totalUpdated = 0;
+        for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+            long chunkFrom = fromId;
+            long chunkTo = Math.min(fromId + chunkSize - 1, maxId);
+            long updated = transactionTemplate.execute(status -> {
+                long count = setter.apply(queryFactory.update(user))
+                        .where(matches(condition))
+                        .where(user.id.between(chunkFrom, chunkTo))
+                        .execute();
+                em.clear();
+                return count;
+            });
+            totalUpdated += updated;
+            eventPublisher.publishEvent(new UsersBulkUpdatedEvent(chunkFrom, chunkTo));
+            progress.accept(new BulkProgress(chunkFrom, chunkTo, maxId, updated, totalUpdated));
+        }
+        return totalUpdated;
+    }
+
+    /**
+     * update 문에는 조인을 쓸 수 없으므로 팀 이름은 서브쿼리로 거른다
+     */
+    private BooleanExpression[] matches(MemberSearchCondition condition) {
+        return new BooleanExpression[]{
+                hasText(condition.getUsername())
+                        ? UsernameMatch.of(condition).on(user.username, condition.getUsername())
+                        : null,
+                hasText(condition.getTeamName())
+                        ? user.team.id.in(JPAExpressions
+                                .select(team.id)
+                                .from(team)
+                                .where(team.name.eq(condition.getTeamName())))
+                        : null,
+                condition.getAgeGoe() != null ? user.age.goe(condition.getAgeGoe()) : null,
+                condition.getAgeLoe() != null ? user.age.loe(condition.getAgeLoe()) : null
+        };
+    }
+}
@@ -0,0 +1,246 @@
+package querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.ImportResult;
+import querydsl.dto.ImportRowError;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 CSV 가져오기 (username,age,teamName)
+ *
+ * 입력을 한 줄씩 읽어서 chunk-size 행마다 한 트랜잭션으로 persist, flush, clear 후 커밋한다.
+ * insert 는 hibernate.jdbc.batch_size 단위로 묶여 나가고, 엔티티 이벤트를 그대로 타므로 읽기 모델, 색인, 통계도 같이 갱신된다.
+ * 팀 이름은 가져오기 한 번 동안 이름 -> id 로 캐시해서 팀마다 한 번만 조회하거나 만든다.
+ * 팀은 청크보다 먼저 별도 트랜잭션에서 만들어 두므로 청크가 롤백되어도 캐시한 id 가 유효하다.
+ * 청크가 실패하면 그 청크만 한 행씩 다시 넣어서 실패한 행을 찾아낸다.
+ * 첫 줄의 첫 열이 username 이면(BOM 은 먼저 뗀다) 헤더로 보고 건너뛴다. 따옴표로 감싼 값은 지원하지만 값 안의 줄바꿈은 지원하지 않는다.
+ */
+@Slf4j
+@Component
+public class UserCsvImporter {
+
+    private static final int MAX_USERNAME_LENGTH = 255;
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public UserCsvImporter(EntityManager em, PlatformTransactionManager transactionManager,
+                           @Value("${querydsl.import.chunk-size:1000}") int chunkSize,
+                           @Value("${querydsl.import.max-errors:1000}") int maxErrors) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ImportResult importCsv(BufferedReader reader) throws IOException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("청크마다 커밋해야 하므로 트랜잭션 밖에서 호출해야 합니다.");
+        }
+
+        long start = System.currentTimeMillis();
+        ImportResult result = new ImportResult();
+        Map<String, Long> teamIds = new HashMap<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) { // UTF-8 BOM
+                line = line.substring(1);
+            }
+            if (line.isBlank() || (lineNumber == 1 && Row.isHeader(line))) {
+                continue;
+            }
+            result.addRows(1);
+            try {
+                chunk.add(Row.parse(lineNumber, line));
+            } catch (IllegalArgumentException e) {
+                result.addError(new ImportRowError(lineNumber, e.getMessage()), maxErrors);
+            }
+            if (chunk.size() == chunkSize) {
+                flushChunk(chunk, teamIds, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flushChunk(chunk, teamIds, result);
+        }
+        log.info("회원 가져오기 완료. rows={}, imported={}, failed={}, teamsCreated={}, {}ms", result.getRows(),
+                result.getImported(), result.getFailed(), result.getTeamsCreated(), System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private void flushChunk(List<Row> chunk, Map<String, Long> teamIds, ImportResult result) {
+        resolveTeams(chunk, teamIds, result);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Row row : chunk) {
+                    persist(row, teamIds);
+                }
+                em.flush();
+                em.clear();
+            });
+            result.addImported(chunk.size());
+        } catch (RuntimeException chunkFailure) {
+            log.debug("청크 실패, 한 행씩 다시 넣는다. lines {}~{}",
+                    chunk.get(0).line, chunk.get(chunk.size() - 1).line, chunkFailure);
+            for (Row row : chunk) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        persist(row, teamIds);
+                        em.flush();
+                        em.clear();
+                    });
+                    result.addImported(1);
+                } catch (RuntimeException e) {
+                    result.addError(new ImportRowError(row.line,
+                            NestedExceptionUtils.getMostSpecificCause(e).getMessage()), maxErrors);
+                }
+            }
+        }
+    }
+
+    /**
+     * 캐시에 없는 팀 이름만 조회하고, 없으면 만든다 (이름이 같은 팀이 여러 개면 id 가 가장 작은 팀)
+     */
+    private void resolveTeams(List<Row> chunk, Map<String, Long> teamIds, ImportResult result) {
+        List<String> missing = chunk.stream()
+                .map(row -> row.teamName)
+                .filter(name -> name != null && !teamIds.containsKey(name))
+                .distinct()
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> found = em.createQuery(
+                            "select t.name, min(t.id) from Team t where t.name in :names group by t.name", Object[].class)
+                    .setParameter("names", missing)
+                    .getResultList();
+            for (Object[] team : found) {
+                teamIds.put((String) team[0], (Long) team[1]);
+            }
+            for (String name : missing) {
+                if (!teamIds.containsKey(name)) {
+                    Team team = new Team(name);
+                    em.persist(team);
+                    teamIds.put(name, team.getId());
+                    result.addTeamCreated();
+                }
+            }
+        });
+    }
+
+    private void persist(Row row, Map<String, Long> teamIds) {
+        User user = new User(row.username, row.age);
+        if (row.teamName != null) {
+            // 생성자의 연관관계 편의 메서드는 팀의 users 컬렉션을 채우므로, 프록시로 FK 만 세팅한다
+            user.setTeam(em.getReference(Team.class, teamIds.get(row.teamName)));
+        }
+        em.persist(user);
+    }
+
+    static class Row {
+        final long line;
+        final String username;
+        final int age;
+        final String teamName; // 비어 있으면 팀 없음
+
+        Row(long line, String username, int age, String teamName) {
+            this.line = line;
+            this.username = username;
+            this.age = age;
+            this.teamName = teamName;
+        }
+
+        static Row parse(long line, String text) {
+            List<String> fields = split(text);
+            if (fields.size() < 2 || fields.size() > 3) {
+                throw new IllegalArgumentException("열은 username,age[,teamName] 이어야 합니다: " + fields.size() + "개");
+            }
+            String username = fields.get(0).trim();
+            if (!hasText(username)) {
+                throw new IllegalArgumentException("username 이 비어 있습니다");
+            }
+            if (username.length() > MAX_USERNAME_LENGTH) {
+                throw new IllegalArgumentException("username 이 " + MAX_USERNAME_LENGTH + "자보다 깁니다");
+            }
+            int age;
+            try {
+                age = Integer.parseInt(fields.get(1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("age 가 숫자가 아닙니다: " + fields.get(1));
+            }
+            if (age < 0) {
+                throw new IllegalArgumentException("age 는 0 이상이어야 합니다: " + age);
+            }
+            String teamName = fields.size() == 3 && hasText(fields.get(2)) ? fields.get(2).trim() : null;
+            return new Row(line, username, age, teamName);
+        }
+
+        /**
+         * 첫 열이 정확히 username 인 줄 ("username1" 같은 실제 회원명은 데이터로 본다)
+         */
+        static boolean isHeader(String text) {
+            try {
+                return split(text).get(0).trim().equalsIgnoreCase("username");
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        /**
+         * 쉼표로 나누되 "..." 안의 쉼표는 값으로 보고, "" 는 따옴표 하나로 읽는다
+         */
+        static List<String> split(String text) {
+            List<String> fields = new ArrayList<>(3);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("닫히지 않은 따옴표");
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -2,11 +2,15 @@ package querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import querydsl.dto.MemberSearchCondition;
 import querydsl.dto.MemberTeamDto;
-import querydsl.dto.QMemberTeamDto;
+import querydsl.dto.MemberTeamDtoMapper;
+import querydsl.dto.UsernameMatch;
 import querydsl.entity.QTeam;
 import querydsl.entity.QUser;
 import querydsl.entity.User;
@@ -14,6 +18,8 @@ import querydsl.entity.User;
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.hasText;
 import static querydsl.entity.QTeam.*;
@@ -23,10 +29,15 @@ import static querydsl.entity.QUser.*;
 public class UserJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchQueries searchQueries;
+    private final int streamFetchSize;
 
-    public UserJpaRepository(EntityManager em) {
+    public UserJpaRepository(EntityManager em, MemberSearchQueries searchQueries,
+                             @Value("${querydsl.search.stream.fetch-size:500}") int streamFetchSize) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchQueries = searchQueries;
+        this.streamFetchSize = streamFetchSize;
     }
 
     public void save(User member) {
@@ -61,7 +72,7 @@ public class UserJpaRepository {
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUsername())) {
-            builder.and(user.username.eq(condition.getUsername()));
+            builder.and(UsernameMatch.of(condition).on(user.username, condition.getUsername()));
         }
         if (hasText(condition.getTeamName())) {
             builder.and(team.name.eq(condition.getTeamName()));
@@ -74,7 +85,7 @@ public class UserJpaRepository {
         }
 
         return queryFactory
-                .select(new QMemberTeamDto(
+                .select(new MemberTeamDtoMapper(
                         user.id,
                         user.username,
                         user.age,
@@ -82,28 +93,31 @@ public class UserJpaRepository {
                         team.name))
                 .from(user)
                 .leftJoin(user.team, team)
+                .where(builder)
                 .fetch();
     }
 
     //회원명, 팀명, 나이(ageGoe, ageLoe)
+    //모양별로 미리 만들어 둔 쿼리를 쓴다 (MemberSearchQueries)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        user.id,
-                        user.username,
-                        user.age,
-                        team.id,
-                        team.name))
-                .from(user)
-                .leftJoin(user.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        return searchQueries.content(condition);
     }
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? user.username.eq(username) : null;
+
+    /**
+     * search 와 같은 쿼리를 전방향 스크롤로 읽으면서 한 건씩 넘긴다.
+     * DTO 조회라 영속성 컨텍스트에 쌓이지 않고, 드라이버는 fetch size 만큼씩만 가져온다.
+     */
+    @Transactional(readOnly = true)
+    public void searchStream(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer) {
+        try (Stream<MemberTeamDto> stream = searchQueries.contentStream(condition, streamFetchSize)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    private BooleanExpression usernameMatches(MemberSearchCondition condition) {
+        return hasText(condition.getUsername())
+                ? UsernameMatch.of(condition).on(user.username, condition.getUsername())
+                : null;
     }
 
     private BooleanExpression teamNameEq(String teamName) {
@@ -124,11 +138,14 @@ public class UserJpaRepository {
     }
 
     //where 파라미터 방식은 이런식으로 재사용이 가능하다.
+    //팀은 조회하지 않으므로 teamName 조건이 있을 때만 조인한다.
     public List<User> findMember(MemberSearchCondition condition) {
-        return queryFactory
-                .selectFrom(user)
-                .leftJoin(user.team, team)
-                .where(usernameEq(condition.getUsername()),
+        JPAQuery<User> query = queryFactory.selectFrom(user);
+        if (hasText(condition.getTeamName())) {
+            query.leftJoin(user.team, team);
+        }
+        return query
+                .where(usernameMatches(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
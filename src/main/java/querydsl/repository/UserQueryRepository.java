@@ -1,56 +1,18 @@
 package querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import querydsl.dto.MemberSearchCondition;
 import querydsl.dto.MemberTeamDto;
-import querydsl.dto.QMemberTeamDto;
 
-import javax.persistence.EntityManager;
 import java.util.List;
 
-import static org.springframework.util.StringUtils.hasText;
-import static querydsl.entity.QTeam.team;
-import static querydsl.entity.QUser.user;
-
 @Repository
+@RequiredArgsConstructor
 public class UserQueryRepository {
-    private final JPAQueryFactory queryFactory;
-
-    public UserQueryRepository(EntityManager em) {
-        this.queryFactory = new JPAQueryFactory(em);
-    }
+    private final MemberSearchQueries searchQueries;
 
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        user.id,
-                        user.username,
-                        user.age,
-                        team.id,
-                        team.name))
-                .from(user)
-                .leftJoin(user.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
-    }
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? user.username.eq(username) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? user.age.goe(ageGoe) : null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? user.age.loe(ageLoe) :  null;
+        return searchQueries.content(condition);
     }
 }
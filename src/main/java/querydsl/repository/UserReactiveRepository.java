@@ -0,0 +1,119 @@
+package querydsl.repository;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.MemberTeamDto;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+/**
+ * R2DBC 논블로킹 검색 (읽기 전용)
+ * UserRepositoryImpl.search, searchPageComplex 와 같은 조건으로 검색하고, 쓰기는 그대로 JPA 를 쓴다.
+ *
+ * ConnectionFactory 를 빈으로 등록하면 스프링 부트가 JDBC DataSource 자동 설정을 끄므로
+ * 이 리포지토리 안에서만 만들어 쓴다. querydsl.reactive.url 이 없으면 등록하지 않는다 (/reactive/** 도 같이 빠진다).
+ */
+@Repository
+@ConditionalOnProperty(name = "querydsl.reactive.url")
+public class UserReactiveRepository {
+
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient client;
+
+    public UserReactiveRepository(@Value("${querydsl.reactive.url}") String url,
+                                  @Value("${querydsl.reactive.username:sa}") String username,
+                                  @Value("${querydsl.reactive.password:}") String password) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(USER, username)
+                .option(PASSWORD, password)
+                .build();
+        this.connectionFactory = ConnectionFactories.get(options);
+        this.client = DatabaseClient.create(connectionFactory);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connectionFactory instanceof Disposable) {
+            ((Disposable) connectionFactory).dispose();
+        }
+    }
+
+    /**
+     * 구독자가 요청한 만큼씩 행을 읽어서 흘려보낸다
+     */
+    public Flux<MemberTeamDto> search(MemberSearchCondition condition) {
+        return query(MemberSearchSql.content(condition, UserReactiveRepository::placeholder))
+                .map((row, metadata) -> toDto(row))
+                .all();
+    }
+
+    /**
+     * searchPageComplex 와 같이 카운트가 필요 없는 페이지는 카운트 쿼리를 생략한다
+     */
+    public Mono<Page<MemberTeamDto>> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        return query(MemberSearchSql.content(condition, pageable.getOffset(), pageable.getPageSize(),
+                UserReactiveRepository::placeholder))
+                .map((row, metadata) -> toDto(row))
+                .all()
+                .collectList()
+                .flatMap(content -> {
+                    if (pageable.getOffset() == 0 && pageable.getPageSize() > content.size()) {
+                        return Mono.just(page(content, pageable, content.size()));
+                    }
+                    if (!content.isEmpty() && pageable.getPageSize() > content.size()) {
+                        return Mono.just(page(content, pageable, pageable.getOffset() + content.size()));
+                    }
+                    return count(condition).map(total -> page(content, pageable, total));
+                });
+    }
+
+    public Mono<Long> count(MemberSearchCondition condition) {
+        return query(MemberSearchSql.count(condition, UserReactiveRepository::placeholder))
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one();
+    }
+
+    private DatabaseClient.GenericExecuteSpec query(MemberSearchSql sql) {
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.getSql());
+        List<Object> binds = sql.getBinds();
+        for (int i = 0; i < binds.size(); i++) {
+            spec = spec.bind(i, binds.get(i));
+        }
+        return spec;
+    }
+
+    private static Page<MemberTeamDto> page(List<MemberTeamDto> content, Pageable pageable, long total) {
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private static MemberTeamDto toDto(Row row) {
+        Integer age = row.get("age", Integer.class);
+        return new MemberTeamDto(
+                row.get("user_id", Long.class),
+                row.get("username", String.class),
+                age != null ? age : 0,
+                row.get("team_id", Long.class),
+                row.get("team_name", String.class));
+    }
+
+    private static String placeholder(int position) {
+        return "$" + position;
+    }
+}
@@ -2,13 +2,22 @@ package querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import querydsl.dto.BulkProgress;
+import querydsl.dto.MemberCursor;
+import querydsl.dto.MemberCursorPage;
 import querydsl.dto.MemberSearchCondition;
 import querydsl.dto.MemberTeamDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    MemberCursorPage searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size);
+
+    // 청크 단위 벌크 update, 트랜잭션 밖에서 호출하고 바뀐 행 수를 돌려준다
+    long bulkRename(MemberSearchCondition condition, String username, Consumer<BulkProgress> progress);
+    long bulkAddAge(MemberSearchCondition condition, int amount, Consumer<BulkProgress> progress);
 }
@@ -1,130 +1,182 @@
 package querydsl.repository;
 
-import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQuery;
-import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import querydsl.dto.BulkProgress;
+import querydsl.dto.EstimatedPage;
+import querydsl.dto.MemberCursor;
+import querydsl.dto.MemberCursorPage;
 import querydsl.dto.MemberSearchCondition;
 import querydsl.dto.MemberTeamDto;
-import querydsl.dto.QMemberTeamDto;
-import querydsl.entity.User;
 
-import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
-import static org.springframework.util.StringUtils.hasText;
-import static querydsl.entity.QTeam.team;
-import static querydsl.entity.QUser.user;
-
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색 쿼리는 MemberSearchQueries 에 미리 만들어 둔 모양별 QueryDSL 쿼리를 쓴다.
+ * 동시에 들어온 같은 검색은 SearchSingleFlight 로 합쳐서 한 번만 실행한다.
+ */
 public class UserRepositoryImpl implements UserRepositoryCustom {
 
-    private final JPAQueryFactory queryFactory;
-
-    public UserRepositoryImpl(EntityManager em) {
-        this.queryFactory = new JPAQueryFactory(em);
+    private final MemberSearchQueries searchQueries;
+    private final MemberCountCache countCache;
+    private final UserBulkOperations bulkOperations;
+    private final ParallelCountExecutor parallelCount;
+    private final SearchSingleFlight singleFlight;
+    private final int countEstimateThreshold;
+
+    public UserRepositoryImpl(MemberSearchQueries searchQueries, MemberCountCache countCache,
+                              UserBulkOperations bulkOperations, ParallelCountExecutor parallelCount,
+                              SearchSingleFlight singleFlight,
+                              @Value("${querydsl.search.count-estimate-threshold:0}") int countEstimateThreshold) {
+        this.searchQueries = searchQueries;
+        this.countCache = countCache;
+        this.bulkOperations = bulkOperations;
+        this.parallelCount = parallelCount;
+        this.singleFlight = singleFlight;
+        this.countEstimateThreshold = countEstimateThreshold;
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        user.id,
-                        user.username,
-                        user.age,
-                        team.id,
-                        team.name))
-                .from(user)
-                .leftJoin(user.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        return singleFlight.execute("search", Arrays.asList(condition.normalized()),
+                () -> searchQueries.content(condition), UserRepositoryImpl::copyContent);
+    }
+
+    /**
+     * 단순한 페이징, fetchResults() 와 같이 카운트를 먼저 세고 0 건이면 내용 조회를 생략한다
+     */
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition,
+                                                Pageable pageable) {
+        return singleFlight.execute("searchPageSimple", Arrays.asList(condition.normalized(), pageable),
+                () -> pageSimple(condition, pageable), UserRepositoryImpl::copyPage);
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? user.username.eq(username) : null;
+    private Page<MemberTeamDto> pageSimple(MemberSearchCondition condition, Pageable pageable) {
+        long total = searchQueries.count(condition);
+        List<MemberTeamDto> content = total > 0
+                ? searchQueries.content(condition, pageable.getOffset(), pageable.getPageSize())
+                : new ArrayList<>();
+        return new PageImpl<>(content, pageable, total);
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    /**
+     * 복잡한 페이징
+     * 데이터 조회 쿼리와, 전체 카운트 쿼리를 분리
+     * 카운트는 검색 조건별로 캐시하고, count-estimate-threshold 가 있으면 그 이상은 세지 않는다.
+     * 세다 멈췄으면 EstimatedPage(totalEstimated: true)로 돌려준다.
+     * parallel-count 가 켜져 있으면 카운트를 내용 조회와 동시에 실행한다. */
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,
+                                                 Pageable pageable) {
+        return singleFlight.execute("searchPageComplex", Arrays.asList(condition.normalized(), pageable),
+                () -> pageComplex(condition, pageable), UserRepositoryImpl::copyPage);
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? user.age.goe(ageGoe) : null;
+    private Page<MemberTeamDto> pageComplex(MemberSearchCondition condition, Pageable pageable) {
+        AtomicBoolean estimated = new AtomicBoolean(); // 병렬 카운트면 다른 스레드에서 채운다
+        LongSupplier total = () -> {
+            long count = countCache.get(condition, () -> count(condition));
+            if (countEstimateThreshold > 0 && count > countEstimateThreshold) {
+                estimated.set(true);
+                return countEstimateThreshold;
+            }
+            return count;
+        };
+        Page<MemberTeamDto> page;
+        if (!parallelCount.isAvailable()) {
+            List<MemberTeamDto> content = searchQueries.content(condition,
+                    pageable.getOffset(), pageable.getPageSize());
+            page = PageableExecutionUtils.getPage(content, pageable, total);
+        } else {
+            // 카운트를 먼저 다른 커넥션에서 시작해 두고 내용을 조회한다
+            ParallelCountExecutor.PendingCount pendingCount = parallelCount.start(total);
+            try {
+                List<MemberTeamDto> content = searchQueries.content(condition,
+                        pageable.getOffset(), pageable.getPageSize());
+                page = PageableExecutionUtils.getPage(content, pageable, pendingCount::get);
+            } finally {
+                pendingCount.cancel(); // 카운트를 쓰지 않았으면 버린다
+            }
+        }
+        // PageImpl 은 현재 페이지가 threshold 너머면 total 을 offset + content 로 보정한다
+        return estimated.get()
+                ? new EstimatedPage<>(page.getContent(), pageable, page.getTotalElements())
+                : page;
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? user.age.loe(ageLoe) : null;
+    /**
+     * 추정 모드면 threshold + 1 건까지만 센다 (threshold 를 넘으면 threshold + 1)
+     */
+    private long count(MemberSearchCondition condition) {
+        if (countEstimateThreshold <= 0) {
+            return searchQueries.count(condition);
+        }
+        return searchQueries.cappedCount(condition, countEstimateThreshold + 1L);
     }
 
     /**
-     * 단순한 페이징, fetchResults() 사용
+     * 커서(keyset) 페이징
+     * offset 으로 앞의 행을 읽고 버리는 대신 마지막으로 본 (age, user_id) 다음부터 읽는다.
+     * (age, user_id) 인덱스를 타므로 뒤쪽 페이지도 첫 페이지와 비용이 같다.
      */
     @Override
-    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition,
-                                                Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        user.id,
-                        user.username,
-                        user.age,
-                        team.id,
-                        team.name))
-                .from(user)
-                .leftJoin(user.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
-        return new PageImpl<>(content, pageable, total);
+    public MemberCursorPage searchByCursor(MemberSearchCondition condition,
+                                           MemberCursor cursor, int size) {
+        return singleFlight.execute("searchByCursor",
+                Arrays.asList(condition.normalized(), cursor != null ? cursor.encode() : null, size),
+                () -> pageByCursor(condition, cursor, size), UserRepositoryImpl::copyCursorPage);
+    }
+
+    private MemberCursorPage pageByCursor(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        // 한 건 더 읽어서 다음 페이지 존재 여부를 판단
+        List<MemberTeamDto> content = searchQueries.afterCursor(condition, cursor, size + 1);
 
+        if (content.size() <= size) {
+            return new MemberCursorPage(content, null);
+        }
+        List<MemberTeamDto> page = new ArrayList<>(content.subList(0, size));
+        return new MemberCursorPage(page, MemberCursor.of(page.get(size - 1)).encode());
     }
-    /**
-     * 복잡한 페이징
-     * 데이터 조회 쿼리와, 전체 카운트 쿼리를 분리 */
+
     @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,
-                                                 Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        user.id.as("memberId"),
-                        user.username,
-                        user.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(user)
-                .leftJoin(user.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
-
-        JPAQuery<Long> countQuery = queryFactory
-                .select(user.count())
-                .from(user)
-                .leftJoin(user.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
-
-        return PageableExecutionUtils.getPage(content, pageable,
-                countQuery::fetchOne);
+    public long bulkRename(MemberSearchCondition condition, String username,
+                           Consumer<BulkProgress> progress) {
+        return bulkOperations.rename(condition, username, progress);
+    }
+
+    @Override
+    public long bulkAddAge(MemberSearchCondition condition, int amount,
+                           Consumer<BulkProgress> progress) {
+        return bulkOperations.addAge(condition, amount, progress);
     }
 
+    private static List<MemberTeamDto> copyContent(List<MemberTeamDto> content) {
+        List<MemberTeamDto> copy = new ArrayList<>(content.size());
+        for (MemberTeamDto dto : content) {
+            copy.add(new MemberTeamDto(dto.getMemberId(), dto.getUsername(), dto.getAge(),
+                    dto.getTeamId(), dto.getTeamName()));
+        }
+        return copy;
+    }
+
+    private static Page<MemberTeamDto> copyPage(Page<MemberTeamDto> page) {
+        if (page instanceof EstimatedPage) {
+            return new EstimatedPage<>(copyContent(page.getContent()), page.getPageable(), page.getTotalElements());
+        }
+        return new PageImpl<>(copyContent(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
 
+    private static MemberCursorPage copyCursorPage(MemberCursorPage page) {
+        return new MemberCursorPage(copyContent(page.getContent()), page.getNextCursor());
+    }
 
 }
@@ -0,0 +1,264 @@
+package querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * 회원명 부분 일치(CONTAINS) 검색용 메모리 3-gram 색인
+ *
+ * like '%x%' 는 인덱스를 못 타고 테이블 전체를 읽는다.
+ * 회원명의 모든 3글자 조각마다 그 조각을 가진 회원 id 목록(posting)을 두고,
+ * 검색어의 조각 중 가장 짧은 목록만 후보로 삼아 실제 회원명과 비교한다. 찾은 id 로 PK 조회를 한다.
+ *
+ * 기동 후 별도 스레드에서 users 를 한 번 읽어 만들고, 이후에는 UsernameIndexListener(커밋 후)와
+ * UsersBulkUpdatedEvent 로 따라간다. 만들어지기 전이거나 답할 수 없는 검색어면 null 을 돌려주고
+ * 호출하는 쪽은 like 로 검색한다.
+ */
+@Slf4j
+@Component
+public class UsernameNgramIndex {
+
+    private static final int GRAM = 3;
+
+    private final Map<Long, Posting> postings = new ConcurrentHashMap<>();
+    private final Map<Long, String> usernames = new ConcurrentHashMap<>();
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final int fetchSize;
+    private volatile boolean ready;
+
+    public UsernameNgramIndex(EntityManager em, PlatformTransactionManager transactionManager,
+                              @Value("${querydsl.search.ngram.enabled:true}") boolean enabled,
+                              @Value("${querydsl.search.ngram.max-candidates:1000}") int maxCandidates,
+                              @Value("${querydsl.search.ngram.fetch-size:1000}") int fetchSize) {
+        this.em = em;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        this.fetchSize = fetchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (enabled) {
+            new SimpleAsyncTaskExecutor("ngram-index-").execute(this::load);
+        }
+    }
+
+    /**
+     * username 을 포함하는 회원 id (오름차순)
+     * 색인이 준비되지 않았거나, 3글자 미만이거나, 후보가 max-candidates 를 넘으면 null
+     */
+    public List<Long> findContaining(String username) {
+        if (!ready || username.length() < GRAM) {
+            return null;
+        }
+        Posting smallest = null;
+        for (int i = 0; i + GRAM <= username.length(); i++) {
+            Posting posting = postings.get(gram(username, i));
+            if (posting == null) {
+                return List.of(); // 이 조각을 가진 회원이 없다
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        if (smallest.size() > maxCandidates) {
+            return null;
+        }
+
+        List<Long> result = new ArrayList<>();
+        for (long id : smallest.toArray()) {
+            String candidate = usernames.get(id);
+            if (candidate != null && candidate.contains(username)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 기동 시 초기 적재가 끝났는지 (끝나기 전에는 findContaining 이 null 이다)
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 이 트랜잭션에 아직 커밋되지 않은 회원명 변경이 있으면 색인이 그 변경을 모른다
+     */
+    public boolean hasPendingChanges() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+
+    public void putAfterCommit(Long id, String username) {
+        afterCommit(id, username);
+    }
+
+    public void removeAfterCommit(Long id) {
+        afterCommit(id, null);
+    }
+
+    /**
+     * 벌크 update 는 엔티티 이벤트가 없으므로 해당 구간을 다시 읽는다
+     */
+    @EventListener
+    public void onBulkUpdate(UsersBulkUpdatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        List<Object[]> rows = readOnlyTransaction.execute(status -> em
+                .createQuery("select u.id, u.username from users u where u.id between :fromId and :toId",
+                        Object[].class)
+                .setParameter("fromId", event.getFromId())
+                .setParameter("toId", event.getToId())
+                .getResultList());
+        for (Object[] row : rows) {
+            apply((Long) row[0], (String) row[1]);
+        }
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = em.createQuery("select u.id, u.username from users u", Object[].class)
+                    .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                    .setHint(QueryHints.READ_ONLY, true)
+                    .getResultStream()) {
+                rows.forEach(row -> addIfAbsent((Long) row[0], (String) row[1]));
+            }
+        });
+        ready = true;
+        log.info("회원명 n-gram 색인 생성 완료. users={}, grams={}, {}ms",
+                usernames.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 롤백된 변경이 색인에 들어가지 않도록 트랜잭션별로 모아 두었다가 커밋 후에 반영한다
+     */
+    @SuppressWarnings("unchecked")
+    private void afterCommit(Long id, String username) {
+        if (!enabled || id == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(id, username);
+            return;
+        }
+        Map<Long, String> pending = (Map<Long, String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Long, String> changes = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.forEach(UsernameNgramIndex.this::apply);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UsernameNgramIndex.this);
+                }
+            });
+            pending = changes;
+        }
+        pending.put(id, username); // null 은 삭제
+    }
+
+    private synchronized void apply(Long id, String username) {
+        String previous = username != null ? usernames.put(id, username) : usernames.remove(id);
+        if (previous != null) {
+            if (previous.equals(username)) {
+                return;
+            }
+            forEachGram(previous, gram -> {
+                Posting posting = postings.get(gram);
+                if (posting != null) {
+                    posting.remove(id);
+                }
+            });
+        }
+        if (username != null) {
+            forEachGram(username, gram -> postings.computeIfAbsent(gram, g -> new Posting()).add(id));
+        }
+    }
+
+    /**
+     * 초기 적재 중에 리스너가 먼저 넣은 더 새로운 값은 덮어쓰지 않는다
+     */
+    private synchronized void addIfAbsent(Long id, String username) {
+        if (username != null && !usernames.containsKey(id)) {
+            apply(id, username);
+        }
+    }
+
+    private static void forEachGram(String username, LongConsumer action) {
+        for (int i = 0; i + GRAM <= username.length(); i++) {
+            action.accept(gram(username, i));
+        }
+    }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    /**
+     * 정렬된 long 배열로 둔 회원 id 목록, id 는 대부분 증가하는 순서로 들어오므로 뒤에 붙는다
+     */
+    private static final class Posting {
+        private long[] ids = new long[4];
+        private int size;
+
+        synchronized void add(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                return;
+            }
+            i = -i - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            ids[i] = id;
+            size++;
+        }
+
+        synchronized void remove(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                size--;
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
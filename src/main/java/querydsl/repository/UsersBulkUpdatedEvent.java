@@ -0,0 +1,19 @@
+package querydsl.repository;
+
+import lombok.Getter;
+
+/**
+ * 엔티티 이벤트를 거치지 않는 벌크 update 가 user_id [fromId, toId] 구간에 커밋됐음을 알린다.
+ * 캐시나 읽기 모델처럼 User 변경을 따라가야 하는 쪽에서 받는다.
+ */
+@Getter
+public class UsersBulkUpdatedEvent {
+
+    private final long fromId;
+    private final long toId;
+
+    public UsersBulkUpdatedEvent(long fromId, long toId) {
+        this.fromId = fromId;
+        this.toId = toId;
+    }
+}
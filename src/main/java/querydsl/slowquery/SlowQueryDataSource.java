@@ -0,0 +1,250 @@
+package querydsl.slowquery;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SlowQueryLog 를 위한 JDBC 프록시 (DataSource > Connection > Statement > ResultSet)
+ *
+ * 바인딩 값은 setXxx 호출마다 배열에 담아 두고, 실행 시간을 잰 뒤 남길 대상일 때만 ResultSet 을 감싸 행 수를 센다.
+ * 남기지 않는 실행은 바인딩 값 기록과 시간 측정 외에 추가 비용이 없다.
+ */
+public final class SlowQueryDataSource {
+
+    private SlowQueryDataSource() {
+    }
+
+    public static DataSource wrap(DataSource target, SlowQueryLog log) {
+        Class<?>[] interfaces = target instanceof AutoCloseable
+                ? new Class<?>[]{DataSource.class, AutoCloseable.class} // 풀 종료(close)도 그대로 넘긴다
+                : new Class<?>[]{DataSource.class};
+        return (DataSource) Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), interfaces,
+                new Handler(target) {
+                    @Override
+                    Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object result = forward(method, args);
+                        if (result instanceof Connection) {
+                            return proxy(Connection.class, new ConnectionHandler((Connection) result, log));
+                        }
+                        return result;
+                    }
+                });
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, handler));
+    }
+
+    private abstract static class Handler implements InvocationHandler {
+        final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                case "isWrapperFor":
+                    return forward(method, args);
+                default:
+                    return handle(proxy, method, args);
+            }
+        }
+
+        abstract Object handle(Object proxy, Method method, Object[] args) throws Throwable;
+
+        Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static class ConnectionHandler extends Handler {
+        private final SlowQueryLog log;
+
+        ConnectionHandler(Connection target, SlowQueryLog log) {
+            super(target);
+            this.log = log;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = forward(method, args);
+            String name = method.getName();
+            if (result instanceof Statement
+                    && (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return proxy(method.getReturnType(), new StatementHandler((Statement) result, sql, log));
+            }
+            return result;
+        }
+    }
+
+    private static class StatementHandler extends Handler {
+        private final String preparedSql;
+        private final SlowQueryLog log;
+        private Object[] params = new Object[8];
+        private int paramCount;
+        private int batchSize;
+        private String batchSql;
+        private ResultSetHandler openResultSet;
+
+        StatementHandler(Statement target, String preparedSql, SlowQueryLog log) {
+            super(target);
+            this.preparedSql = preparedSql;
+            this.log = log;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && target instanceof PreparedStatement) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                return forward(method, args);
+            }
+            switch (name) {
+                case "clearParameters":
+                    paramCount = 0;
+                    Arrays.fill(params, null);
+                    return forward(method, args);
+                case "addBatch":
+                    batchSize++;
+                    if (args != null && args.length == 1) {
+                        batchSql = (String) args[0];
+                    }
+                    return forward(method, args);
+                case "clearBatch":
+                    batchSize = 0;
+                    return forward(method, args);
+                case "close":
+                    finishResultSet();
+                    return forward(method, args);
+                default:
+                    if (name.startsWith("execute")) {
+                        return execute(method, args);
+                    }
+                    return forward(method, args);
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finishResultSet();
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                    : preparedSql != null ? preparedSql : batchSql;
+            int batch = method.getName().equals("executeBatch") || method.getName().equals("executeLargeBatch")
+                    ? batchSize : 0;
+
+            long start = System.nanoTime();
+            Object result = forward(method, args);
+            long executeNanos = System.nanoTime() - start;
+            if (batch > 0) {
+                batchSize = 0;
+            }
+
+            Boolean slow = log.decide(executeNanos);
+            if (slow == null || sql == null) {
+                return result;
+            }
+            List<Object> bound = new ArrayList<>(paramCount);
+            for (int i = 0; i < paramCount; i++) {
+                bound.add(params[i]);
+            }
+            if (result instanceof ResultSet) {
+                ResultSetHandler handler = new ResultSetHandler((ResultSet) result);
+                handler.onClose = () -> log.record(slow, sql, bound, executeNanos,
+                        System.nanoTime() - start, handler.rows, batch);
+                openResultSet = handler;
+                return proxy(ResultSet.class, handler);
+            }
+            log.record(slow, sql, bound, executeNanos, executeNanos, rows(result), batch);
+            return result;
+        }
+
+        private void finishResultSet() {
+            if (openResultSet != null) {
+                openResultSet.finish();
+                openResultSet = null;
+            }
+        }
+
+        private void bind(int index, Object value) {
+            if (index > params.length) {
+                params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            }
+            if (value instanceof InputStream || value instanceof Reader || value instanceof Blob || value instanceof Clob) {
+                value = "<" + value.getClass().getSimpleName() + ">";
+            }
+            params[index - 1] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+
+        private static long rows(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof int[]) {
+                return Arrays.stream((int[]) result).filter(n -> n > 0).asLongStream().sum();
+            }
+            if (result instanceof long[]) {
+                return Arrays.stream((long[]) result).filter(n -> n > 0).sum();
+            }
+            return -1; // execute() 의 boolean
+        }
+    }
+
+    private static class ResultSetHandler extends Handler {
+        private Runnable onClose;
+        private long rows;
+        private boolean finished;
+
+        ResultSetHandler(ResultSet target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = forward(method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (method.getName().equals("close")) {
+                finish();
+            }
+            return result;
+        }
+
+        /**
+         * ResultSet 을 닫지 않고 Statement 를 닫거나 다시 실행해도 한 번은 남긴다
+         */
+        void finish() {
+            if (!finished) {
+                finished = true;
+                onClose.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package querydsl.slowquery;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 느린 쿼리 로그 한 건
+ */
+@Getter
+public class SlowQueryEntry {
+
+    private final boolean slow;         // false 면 임계값 아래에서 샘플링된 것
+    private final String sql;
+    private final List<Object> params;
+    private final long executeNanos;    // execute 호출 시간 (임계값 비교 기준)
+    private final long totalNanos;      // ResultSet 을 다 읽고 닫을 때까지
+    private final long rows;            // 조회 행 수 또는 변경 행 수, 알 수 없으면 -1
+    private final int batchSize;        // 배치가 아니면 0
+    private final String caller;
+    private final String thread;
+
+    public SlowQueryEntry(boolean slow, String sql, List<Object> params, long executeNanos, long totalNanos,
+                          long rows, int batchSize, String caller, String thread) {
+        this.slow = slow;
+        this.sql = sql;
+        this.params = params;
+        this.executeNanos = executeNanos;
+        this.totalNanos = totalNanos;
+        this.rows = rows;
+        this.batchSize = batchSize;
+        this.caller = caller;
+        this.thread = thread;
+    }
+}
@@ -0,0 +1,150 @@
+package querydsl.slowquery;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 느린 쿼리 로그
+ *
+ * 임계값 이상 걸린 SQL 과, 나머지 중 sample-rate 비율만 남긴다.
+ * 요청 스레드는 큐에 넣기만 하고(가득 차면 버리고 개수만 센다) 로그 출력은 전용 스레드가 한다.
+ * 출력은 querydsl.SLOW_QUERY 로거로 나가므로 로그 설정에서 파일을 따로 뺄 수 있다.
+ */
+@Slf4j
+public class SlowQueryLog {
+
+    private static final Logger SLOW_QUERY = LoggerFactory.getLogger("querydsl.SLOW_QUERY");
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int maxParamLength;
+    private final BlockingQueue<SlowQueryEntry> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public SlowQueryLog(Duration threshold, double sampleRate, int queueCapacity, int maxParamLength) {
+        this.thresholdNanos = threshold.toNanos();
+        this.sampleRate = sampleRate;
+        this.maxParamLength = maxParamLength;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(this::drain, "slow-query-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 이 실행을 남길지, 남긴다면 느려서인지(true) 샘플링인지(false). 남기지 않으면 null
+     */
+    Boolean decide(long executeNanos) {
+        if (executeNanos >= thresholdNanos) {
+            return Boolean.TRUE;
+        }
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * 요청 스레드에서 호출된다. 호출한 리포지토리 메서드를 여기서 찾고 나머지는 큐에 넘긴다.
+     */
+    void record(boolean slow, String sql, List<Object> params, long executeNanos, long totalNanos,
+                long rows, int batchSize) {
+        SlowQueryEntry entry = new SlowQueryEntry(slow, sql, params, executeNanos, totalNanos, rows, batchSize,
+                caller(), Thread.currentThread().getName());
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void close() {
+        running = false;
+        writer.interrupt();
+    }
+
+    /**
+     * querydsl.repository 의 첫 프레임, 없으면 이 패키지 밖의 첫 querydsl 프레임
+     */
+    private static String caller() {
+        Optional<StackWalker.StackFrame> frame = STACK_WALKER.walk(frames -> {
+            List<StackWalker.StackFrame> app = frames
+                    .filter(f -> f.getClassName().startsWith("querydsl.")
+                            && !f.getClassName().startsWith("querydsl.slowquery.")
+                            && !f.getClassName().contains("$$"))
+                    .limit(20)
+                    .collect(Collectors.toList());
+            return app.stream()
+                    .filter(f -> f.getClassName().startsWith("querydsl.repository."))
+                    .findFirst()
+                    .or(() -> app.stream().findFirst());
+        });
+        return frame.map(f -> simpleName(f.getClassName()) + "." + f.getMethodName() + ":" + f.getLineNumber())
+                .orElse("?");
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private void drain() {
+        List<SlowQueryEntry> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                SlowQueryEntry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, 255);
+                for (SlowQueryEntry entry : batch) {
+                    write(entry);
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (RuntimeException e) {
+                log.warn("느린 쿼리 로그 출력 실패", e);
+                batch.clear();
+            }
+        }
+        long lost = dropped.sum();
+        if (lost > 0) {
+            log.warn("느린 쿼리 로그 큐가 가득 차서 {}건을 버렸습니다.", lost);
+        }
+    }
+
+    private void write(SlowQueryEntry entry) {
+        SLOW_QUERY.info("[{} {}ms total={}ms rows={}{}] {} | {} | params={}",
+                entry.isSlow() ? "SLOW" : "SAMPLED",
+                TimeUnit.NANOSECONDS.toMillis(entry.getExecuteNanos()),
+                TimeUnit.NANOSECONDS.toMillis(entry.getTotalNanos()),
+                entry.getRows(),
+                entry.getBatchSize() > 0 ? " batch=" + entry.getBatchSize() : "",
+                entry.getCaller(),
+                entry.getSql().replaceAll("\\s+", " ").trim(),
+                entry.getParams().stream().map(this::format).collect(Collectors.joining(", ", "[", "]")));
+    }
+
+    private String format(Object param) {
+        String value = String.valueOf(param);
+        return value.length() > maxParamLength ? value.substring(0, maxParamLength) + "..." : value;
+    }
+}
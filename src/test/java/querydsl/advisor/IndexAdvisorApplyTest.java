@@ -0,0 +1,104 @@
+package querydsl.advisor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * H2 의 DDL 은 진행 중인 트랜잭션을 커밋하므로 @Transactional 을 붙이지 않고, 만든 데이터와 인덱스는 직접 지운다
+ * 읽기 모델은 엔티티에 인덱스가 다 있으므로 team_name 인덱스를 잠시 내려 전체 스캔하는 모양을 만든다
+ */
+@SpringBootTest
+class IndexAdvisorApplyTest {
+
+    private static final int READ_MODEL_TEAM_NAME = 1;
+    private static final String ADVISED_INDEX = "idx_adv_member_team_team_name";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate transaction;
+    IndexAdvisor advisor;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        transaction = new TransactionTemplate(transactionManager);
+        advisor = new IndexAdvisor(jdbcTemplate, true, false, 200);
+        transaction.executeWithoutResult(status -> {
+            Team teamA = new Team("advTeamA");
+            Team teamB = new Team("advTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            for (int i = 0; i < 50; i++) {
+                em.persist(new User("adv" + i, i, i < 5 ? teamA : teamB));
+            }
+        });
+        jdbcTemplate.execute("drop index idx_member_team_team_name");
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.execute("drop index if exists " + ADVISED_INDEX);
+        jdbcTemplate.execute("create index if not exists idx_member_team_team_name on member_team(team_name)");
+        // 읽기 모델도 따라오도록 벌크 delete 대신 엔티티로 지운다
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("select u from users u where u.team.id in (:teamIds)", User.class)
+                    .setParameter("teamIds", List.of(teamAId, teamBId))
+                    .getResultList()
+                    .forEach(em::remove);
+            em.flush();
+            em.remove(em.find(Team.class, teamAId));
+            em.remove(em.find(Team.class, teamBId));
+        });
+    }
+
+    @Test
+    public void appliesRecommendedIndexAndMeasuresAgain() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("advTeamA");
+        condition.setReadModel(true);
+        advisor.record(condition, READ_MODEL_TEAM_NAME, SearchKind.CONTENT, 1_000_000);
+
+        IndexAdvice analyzed = advisor.analyze().get(0);
+
+        assertThat(analyzed.getShape()).isEqualTo("teamName,readModel");
+        assertThat(analyzed.getSql()).contains("from member_team u").contains("u.team_name = ?");
+        assertThat(analyzed.getPlanBefore()).contains("PUBLIC.MEMBER_TEAM.tableScan");
+        assertThat(analyzed.getRecommendations())
+                .containsExactly("create index if not exists " + ADVISED_INDEX + " on member_team(team_name)");
+        assertThat(analyzed.isApplied()).isFalse();
+
+        IndexAdvice applied = advisor.apply().get(0);
+
+        assertThat(applied.isApplied()).isTrue();
+        assertThat(applied.getPlanAfter()).containsIgnoringCase(ADVISED_INDEX).doesNotContain("tableScan");
+        assertThat(applied.getScannedRowsBefore()).isGreaterThanOrEqualTo(50);
+        assertThat(applied.getScannedRowsAfter()).isLessThan(applied.getScannedRowsBefore());
+
+        // 이미 적용한 모양은 다시 분석해도 after 값을 유지한다
+        IndexAdvice again = advisor.analyze().get(0);
+        assertThat(again.getPlanAfter()).isEqualTo(applied.getPlanAfter());
+        assertThat(again.getPlanBefore()).isEqualTo(analyzed.getPlanBefore());
+    }
+}
@@ -0,0 +1,110 @@
+package querydsl.advisor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.UsernameMatch;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 다른 테스트의 검색 기록과 섞이지 않도록 빈 대신 테스트마다 새 어드바이저를 만든다
+ */
+@SpringBootTest
+@Transactional
+class IndexAdvisorTest {
+
+    // 어드바이저는 모양 비트를 키로만 쓰므로 MemberSearchQueries 의 값과 같지 않아도 된다
+    private static final int USERNAME_LIKE = 1;
+    private static final int TEAM_NAME_AGE_GOE = 2;
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    IndexAdvisor advisor;
+
+    @BeforeEach
+    public void before() {
+        advisor = new IndexAdvisor(jdbcTemplate, true, false, 200);
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new User("member1", 10, teamA));
+        em.persist(new User("member2", 20, teamB));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void sameShapeWithDifferentValuesIsOneUsage() {
+        advisor.record(condition(null, null, "teamA", 10), TEAM_NAME_AGE_GOE, SearchKind.CONTENT, 1_000_000);
+        advisor.record(condition(null, null, "teamB", 30), TEAM_NAME_AGE_GOE, SearchKind.CONTENT, 3_000_000);
+        advisor.record(condition(null, null, "teamA", 10), TEAM_NAME_AGE_GOE, SearchKind.COUNT, 1_000_000);
+
+        List<IndexAdvice> advices = advisor.analyze();
+
+        assertThat(advices).hasSize(2);
+        IndexAdvice content = advices.stream().filter(advice -> advice.getKind() == SearchKind.CONTENT)
+                .findFirst()
+                .orElseThrow();
+        assertThat(content.getShape()).isEqualTo("teamName,ageGoe");
+        assertThat(content.getCalls()).isEqualTo(2);
+        assertThat(content.getObservedAvgMillis()).isEqualTo(2.0);
+        assertThat(content.getSql()).contains("t.name = ?");
+        assertThat(content.getPlanBefore()).isNotEmpty();
+        assertThat(content.getScannedRowsBefore()).isNotNull();
+    }
+
+    @Test
+    public void sampleIsNotAffectedByCallerChanges() {
+        MemberSearchCondition condition = condition(null, null, "teamA", 10);
+        advisor.record(condition, TEAM_NAME_AGE_GOE, SearchKind.CONTENT, 1_000_000);
+        condition.setUsername("member1");
+        condition.setAgeGoe(null);
+
+        IndexAdvice advice = advisor.analyze().get(0);
+
+        assertThat(advice.getSql()).contains("t.name = ?").contains("u.age >= ?").doesNotContain("username");
+    }
+
+    @Test
+    public void prefixAndContainsAreSeparateUsages() {
+        advisor.record(condition("mem", UsernameMatch.PREFIX, null, null), USERNAME_LIKE, SearchKind.CONTENT, 1);
+        advisor.record(condition("mem", UsernameMatch.CONTAINS, null, null), USERNAME_LIKE, SearchKind.CONTENT, 1);
+
+        assertThat(advisor.analyze()).extracting(IndexAdvice::getShape)
+                .containsExactlyInAnyOrder("username:PREFIX", "username:CONTAINS");
+    }
+
+    @Test
+    public void reportDoesNotExplain() {
+        advisor.record(condition(null, null, "teamA", 10), TEAM_NAME_AGE_GOE, SearchKind.CONTENT, 1);
+
+        assertThat(advisor.report()).isEmpty();
+        assertThat(advisor.analyze()).hasSize(1);
+        assertThat(advisor.report()).hasSize(1);
+    }
+
+    private static MemberSearchCondition condition(String username, UsernameMatch match, String teamName,
+                                                   Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameMatch(match);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+}
@@ -0,0 +1,100 @@
+package querydsl.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 가상 스레드 실행기는 JDK 21 이상에서만 만들어지므로 컨텍스트 없이 필터와 등록 정보만 본다
+ */
+class DbConcurrencyLimitFilterTest {
+
+    @Test
+    public void rejectsAfterMaxWaitWhenAllPermitsAreHeld() throws Exception {
+        DbConcurrencyLimitFilter filter = new DbConcurrencyLimitFilter(1, Duration.ofMillis(100));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<MockHttpServletResponse> holder = executor.submit(() -> filter(filter, "/v1/users", (req, res) -> {
+                entered.countDown();
+                await(release);
+            }));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            AtomicInteger passed = new AtomicInteger();
+            long start = System.nanoTime();
+            MockHttpServletResponse rejected = filter(filter, "/v1/users", (req, res) -> passed.incrementAndGet());
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertThat(rejected.getStatus()).isEqualTo(503);
+            assertThat(passed).hasValue(0);
+            assertThat(waitedMillis).isGreaterThanOrEqualTo(100);
+
+            release.countDown();
+            assertThat(holder.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+            assertThat(filter(filter, "/v1/users", (req, res) -> passed.incrementAndGet()).getStatus()).isEqualTo(200);
+            assertThat(passed).hasValue(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void releasesPermitWhenChainThrows() throws Exception {
+        DbConcurrencyLimitFilter filter = new DbConcurrencyLimitFilter(1, Duration.ZERO);
+
+        assertThatThrownBy(() -> filter(filter, "/v2/members", (req, res) -> {
+            throw new ServletException("boom");
+        })).isInstanceOf(ServletException.class);
+        assertThatThrownBy(() -> filter(filter, "/v2/members", (req, res) -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        AtomicInteger passed = new AtomicInteger();
+        assertThat(filter(filter, "/v2/members", (req, res) -> passed.incrementAndGet()).getStatus()).isEqualTo(200);
+        assertThat(passed).hasValue(1);
+    }
+
+    /**
+     * 검색 API 만 제한하고 /admin 등 나머지 경로는 필터를 거치지 않는다
+     */
+    @Test
+    public void registeredOnlyForSearchApis() {
+        FilterRegistrationBean<DbConcurrencyLimitFilter> registration =
+                new VirtualThreadConfig().dbConcurrencyLimitFilter(10, false, 4, Duration.ofSeconds(1));
+
+        assertThat(registration.getUrlPatterns()).containsExactlyInAnyOrder("/v1/*", "/v2/*", "/v3/*", "/v4/*");
+    }
+
+    private static MockHttpServletResponse filter(DbConcurrencyLimitFilter filter, String path, FilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
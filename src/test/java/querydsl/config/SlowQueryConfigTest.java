@@ -0,0 +1,166 @@
+package querydsl.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import querydsl.slowquery.SlowQueryDataSource;
+import querydsl.slowquery.SlowQueryLog;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 임계값 0 으로 모든 SQL 을 남기게 하고 querydsl.SLOW_QUERY 로거에 붙인 appender 로 확인한다
+ * 다른 테스트와 DB 를 나누지 않으면 스키마를 다시 만들게 되므로 메모리 DB 이름을 따로 준다
+ */
+@SpringBootTest(properties = {
+        "querydsl.slow-query.enabled=true",
+        "querydsl.slow-query.threshold=0",
+        "spring.datasource.url=jdbc:h2:mem:slowquery;DB_CLOSE_DELAY=-1"
+})
+class SlowQueryConfigTest {
+
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    Logger slowQueryLogger = (Logger) LoggerFactory.getLogger("querydsl.SLOW_QUERY");
+    ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    public void before() {
+        appender.setContext(slowQueryLogger.getLoggerContext());
+        appender.start();
+        slowQueryLogger.addAppender(appender);
+        jdbcTemplate.update("insert into users (user_id, username, age) values (next value for users_seq, ?, ?)",
+                "slowA", 10);
+        jdbcTemplate.update("insert into users (user_id, username, age) values (next value for users_seq, ?, ?)",
+                "slowB", 20);
+    }
+
+    @AfterEach
+    public void after() {
+        slowQueryLogger.detachAppender(appender);
+        jdbcTemplate.update("delete from users where username like 'slow%'");
+    }
+
+    @Test
+    public void dataSourceIsWrapped() throws Exception {
+        assertThat(Proxy.isProxyClass(dataSource.getClass())).isTrue();
+        assertThat(dataSource.isWrapperFor(HikariDataSource.class)).isTrue();
+        assertThat(dataSource.unwrap(HikariDataSource.class)).isNotNull();
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(Proxy.isProxyClass(connection.getClass())).isTrue();
+            // unwrap 은 프록시를 거치지 않고 풀의 커넥션에 그대로 넘어간다
+            assertThat(Proxy.isProxyClass(connection.unwrap(Connection.class).getClass())).isFalse();
+        }
+    }
+
+    @Test
+    public void selectIsLogged() throws InterruptedException {
+        List<Integer> ages = jdbcTemplate.queryForList(
+                "select age from users where username like ? order by age", Integer.class, "slow%");
+
+        assertThat(ages).containsExactly(10, 20);
+        String line = awaitLine("select age from users where username like ? order by age");
+        assertThat(line).startsWith("[SLOW ")
+                .contains("rows=2]")
+                .doesNotContain("batch=")
+                .contains("] SlowQueryConfigTest.selectIsLogged:")
+                .endsWith("| params=[slow%]");
+    }
+
+    @Test
+    public void updateIsLogged() throws InterruptedException {
+        int updated = jdbcTemplate.update("update users set age = ? where username like ?", 99, "slow%");
+
+        assertThat(updated).isEqualTo(2);
+        String line = awaitLine("update users set age = ? where username like ?");
+        assertThat(line).contains("rows=2]")
+                .contains("] SlowQueryConfigTest.updateIsLogged:")
+                .endsWith("| params=[99, slow%]");
+    }
+
+    @Test
+    public void batchInsertIsLogged() throws InterruptedException {
+        String sql = "insert into users (user_id, username, age) values (next value for users_seq, ?, ?)";
+        int[] inserted = jdbcTemplate.batchUpdate(sql, List.of(
+                new Object[]{"slowC1", 1}, new Object[]{"slowC2", 2}, new Object[]{"slowC3", 3}));
+
+        assertThat(inserted).hasSize(3);
+        String line = awaitLine(sql + " | params=[slowC3, 3]"); // 바인딩 값은 마지막 행
+        assertThat(line).contains("rows=3 batch=3]")
+                .contains("] SlowQueryConfigTest.batchInsertIsLogged:");
+    }
+
+    /**
+     * 남기지 않는 실행은 ResultSet 을 감싸지 않고 결과도 그대로다
+     */
+    @Test
+    public void unloggedStatementPassesThrough() throws Exception {
+        SlowQueryLog neverSlow = new SlowQueryLog(Duration.ofHours(1), 0, 10, 100);
+        try {
+            DataSource wrapped = SlowQueryDataSource.wrap(dataSource.unwrap(HikariDataSource.class), neverSlow);
+            try (Connection connection = wrapped.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "select username from users where username like ? order by username")) {
+                statement.setString(1, "slow%");
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertThat(Proxy.isProxyClass(resultSet.getClass())).isFalse();
+                    assertThat(resultSet.next()).isTrue();
+                    assertThat(resultSet.getString(1)).isEqualTo("slowA");
+                    assertThat(resultSet.next()).isTrue();
+                    assertThat(resultSet.getString(1)).isEqualTo("slowB");
+                    assertThat(resultSet.next()).isFalse();
+                }
+                assertThat(statement.unwrap(PreparedStatement.class)).isNotNull();
+            }
+        } finally {
+            neverSlow.close();
+        }
+        Thread.sleep(100);
+        assertThat(lines()).noneMatch(line -> line.contains("select username from users where username like ?"));
+        assertThat(slowQueryLog.getDropped()).isZero();
+    }
+
+    /**
+     * 로그 출력은 전용 스레드가 하므로 잠시 기다린다
+     */
+    private String awaitLine(String text) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (String line : lines()) {
+                if (line.contains(text)) {
+                    return line;
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("not logged: " + text);
+    }
+
+    private List<String> lines() {
+        synchronized (appender) {
+            return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 테스트 설정(application.yml)에는 2차 캐시와 통계가 없으므로 운영 설정과 같게 켜고,
+ * 트랜잭션을 나눠 읽어야 하므로 @Transactional 없이 커밋한 뒤 만든 데이터는 직접 지운다.
+ * 다른 테스트와 스키마를 나누지 않도록 메모리 DB 이름을 따로 준다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cachestats;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class CacheStatsControllerTest {
+
+    private static final String TEAM_REGION = "querydsl.entity.Team";
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transaction;
+    SessionFactory sessionFactory;
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        transaction = new TransactionTemplate(transactionManager);
+        sessionFactory = emf.unwrap(SessionFactory.class);
+        teamId = transaction.execute(status -> {
+            Team team = new Team("cacheTeam");
+            em.persist(team);
+            return team.getId();
+        });
+        // insert 때 넣어 둔 항목은 빼고 조회로 채우는 것부터 본다
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    @AfterEach
+    public void after() {
+        transaction.executeWithoutResult(status -> em.remove(em.find(Team.class, teamId)));
+    }
+
+    @Test
+    public void secondLoadInAnotherTransactionHitsCache() {
+        long hits = region().getHitCount();
+        long misses = region().getMissCount();
+
+        assertThat(load()).isEqualTo("cacheTeam");
+        assertThat(region().getMissCount() - misses).isEqualTo(1);
+        assertThat(sessionFactory.getCache().containsEntity(Team.class, teamId)).isTrue();
+
+        assertThat(load()).isEqualTo("cacheTeam");
+        assertThat(region().getHitCount() - hits).isEqualTo(1);
+        assertThat(region().getMissCount() - misses).isEqualTo(1);
+    }
+
+    @Test
+    public void renameIsNotServedStale() {
+        load();
+        transaction.executeWithoutResult(status -> em.find(Team.class, teamId).setName("cacheTeamRenamed"));
+
+        assertThat(load()).isEqualTo("cacheTeamRenamed");
+
+        // 엔티티를 거치지 않는 벌크 update 는 영역 전체를 비운다
+        transaction.executeWithoutResult(status -> em.createQuery("update Team t set t.name = :name where t.id = :id")
+                .setParameter("name", "cacheTeamBulk")
+                .setParameter("id", teamId)
+                .executeUpdate());
+
+        assertThat(sessionFactory.getCache().containsEntity(Team.class, teamId)).isFalse();
+        assertThat(load()).isEqualTo("cacheTeamBulk");
+    }
+
+    @Test
+    public void cacheStatsReportsHits() throws Exception {
+        load();
+        load();
+
+        String body = mockMvc.perform(get("/admin/cache-stats"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        JsonNode stats = objectMapper.readTree(body);
+
+        assertThat(stats.get("secondLevelCacheHit").asLong()).isGreaterThanOrEqualTo(1);
+        JsonNode team = stats.get("regions").get(TEAM_REGION);
+        assertThat(team).isNotNull();
+        assertThat(team.get("hit").asLong()).isEqualTo(region().getHitCount()).isGreaterThanOrEqualTo(1);
+        assertThat(team.get("put").asLong()).isGreaterThanOrEqualTo(1);
+    }
+
+    private String load() {
+        return transaction.execute(status -> em.find(Team.class, teamId).getName());
+    }
+
+    private CacheRegionStatistics region() {
+        Statistics statistics = sessionFactory.getStatistics();
+        return statistics.getCacheRegionStatistics(TEAM_REGION);
+    }
+}
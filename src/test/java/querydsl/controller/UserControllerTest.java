@@ -0,0 +1,89 @@
+package querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class UserControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    EntityManager em;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("streamTeamA");
+        Team teamB = new Team("streamTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new User("streamMember" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * /v1/users/stream 은 /v1/users 와 같은 행을 한 줄에 JSON 객체 하나씩 내보낸다
+     */
+    @Test
+    public void streamWritesOneJsonObjectPerLine() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/v1/users/stream").param("teamName", "streamTeamB"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        MvcResult list = mockMvc.perform(get("/v1/users").param("teamName", "streamTeamB"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String body = stream.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertThat(body).endsWith("\n");
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            JsonNode node = objectMapper.readTree(line);
+            assertThat(node.isObject()).as(line).isTrue();
+            lines.add(node);
+        }
+        List<JsonNode> expected = new ArrayList<>();
+        objectMapper.readTree(list.getResponse().getContentAsString(StandardCharsets.UTF_8)).forEach(expected::add);
+
+        assertThat(lines).hasSize(3).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(lines).extracting(node -> node.get("teamName").asText()).containsOnly("streamTeamB");
+    }
+
+    @Test
+    public void streamWithoutMatchesIsEmpty() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/v1/users/stream").param("teamName", "streamTeamNone"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        assertThat(stream.getResponse().getContentAsString(StandardCharsets.UTF_8)).isEmpty();
+    }
+}
@@ -15,6 +15,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 import querydsl.dto.QUserDto;
 import querydsl.dto.UserDto;
+import querydsl.dto.UserDtoMapper;
+import querydsl.support.ExpectQueries;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -324,6 +326,7 @@ public class QueryDslBasicTest {
     EntityManagerFactory emf;
 
     @Test
+    @ExpectQueries(selects = 1)
     public void fetchJoinNo() throws Exception {
         em.flush();
         em.clear();
@@ -339,8 +342,24 @@ public class QueryDslBasicTest {
         assertThat(loaded).as("페치 조인 미적용").isFalse();
     }
 
+    @Test
+    @ExpectQueries(selects = 2, allowLazyLoading = true) // allowLazyLoading 을 빼면 실패한다
+    public void fetchJoinNoLazyLoading() throws Exception {
+        em.flush();
+        em.clear();
+
+        User findMember = queryFactory
+                .selectFrom(user)
+                .where(user.username.eq("mem1"))
+                .fetchOne();
+
+        // 팀 프록시가 여기서 초기화되면서 select 가 한 번 더 나간다 (N+1 의 1)
+        assertThat(findMember.getTeam().getName()).isEqualTo("teamA");
+    }
+
 
     @Test
+    @ExpectQueries(selects = 1, statements = 7) // flush 의 insert 6 (팀 2, 회원 4) + select 1
     public void fetchJoinUse() throws Exception {
         em.flush();
         em.clear();
@@ -515,6 +534,16 @@ public class QueryDslBasicTest {
                 .fetch();
     }
 
+    @Test
+    @ExpectQueries(selects = 1)
+    public void findDtoByMapper() throws Exception {
+        List<UserDto> result = queryFactory
+                .select(new UserDtoMapper(user.username, user.age))
+                .from(user)
+                .fetch();
+        assertThat(result).extracting("username").contains("mem1", "mem2", "mem3", "mem4");
+    }
+
     /**
      * 동적쿼리
      * 1. BooleanBuilder
@@ -0,0 +1,104 @@
+package querydsl.export;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import querydsl.dto.ExportSummaryDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 쓰고 다시 읽어서 같은지 확인한다. window 를 작게 잡아 값과 회원명이 window 경계에 걸치게 한다.
+ */
+class MemberColumnarTest {
+
+    private static final int WINDOW = 16;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void roundTrip() throws IOException {
+        Path file = dir.resolve("members.qdc");
+        List<Object[]> teams = List.of(new Object[]{10L, "teamA"}, new Object[]{20L, "팀B"});
+        try (MemberColumnarWriter writer = new MemberColumnarWriter(file, 100, teams, WINDOW)) {
+            for (int i = 0; i < 50; i++) {
+                assertThat(writer.append(i + 1, username(i), 20 + i, i % 3 == 0 ? ColumnarFormat.NO_TEAM : i % 2))
+                        .isTrue();
+            }
+        }
+
+        try (MemberColumnarReader reader = new MemberColumnarReader(file, WINDOW)) {
+            assertThat(reader.getRowCount()).isEqualTo(50);
+            assertThat(reader.getTeamCount()).isEqualTo(2);
+            assertThat(reader.teamNameOf(1)).isEqualTo("팀B");
+            for (int i = 0; i < 50; i++) {
+                assertThat(reader.id(i)).isEqualTo(i + 1);
+                assertThat(reader.age(i)).isEqualTo(20 + i);
+                assertThat(reader.username(i)).isEqualTo(username(i));
+                if (i % 3 == 0) {
+                    assertThat(reader.teamId(i)).isNull();
+                    assertThat(reader.teamName(i)).isNull();
+                } else {
+                    assertThat(reader.teamId(i)).isEqualTo(i % 2 == 0 ? 10L : 20L);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stopsAtCapacity() throws IOException {
+        Path file = dir.resolve("members.qdc");
+        try (MemberColumnarWriter writer = new MemberColumnarWriter(file, 1, List.of(), WINDOW)) {
+            assertThat(writer.append(1, "member1", 10, ColumnarFormat.NO_TEAM)).isTrue();
+            assertThat(writer.append(2, "member2", 20, ColumnarFormat.NO_TEAM)).isFalse();
+        }
+
+        try (MemberColumnarReader reader = new MemberColumnarReader(file, WINDOW)) {
+            assertThat(reader.getRowCount()).isEqualTo(1);
+            assertThat(reader.username(0)).isEqualTo("member1");
+        }
+    }
+
+    @Test
+    public void emptyTable() throws IOException {
+        Path file = dir.resolve("members.qdc");
+        try (MemberColumnarWriter writer = new MemberColumnarWriter(file, 0, List.of(), WINDOW)) {
+            assertThat(writer.getRowCount()).isZero();
+        }
+
+        try (MemberColumnarReader reader = new MemberColumnarReader(file, WINDOW)) {
+            assertThat(reader.getRowCount()).isZero();
+            assertThat(reader.getTeamCount()).isZero();
+        }
+        ExportSummaryDto summary = MemberExportJob.summarize(file);
+        assertThat(summary.getTeams()).isEmpty();
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        Path file = dir.resolve("members.qdc");
+        try (MemberColumnarWriter writer = new MemberColumnarWriter(file, 10, List.of(), WINDOW)) {
+            for (int i = 0; i < 10; i++) {
+                writer.append(i, username(i), i, ColumnarFormat.NO_TEAM);
+            }
+        }
+        Path truncated = dir.resolve("truncated.qdc");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThatThrownBy(() -> new MemberColumnarReader(truncated, WINDOW))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("파일 밖");
+    }
+
+    private static String username(int i) {
+        return i % 2 == 0 ? "member" + i : "회원" + i + "😀";
+    }
+}
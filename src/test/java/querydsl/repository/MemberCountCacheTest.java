@@ -0,0 +1,99 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커밋 후 무효화를 보려면 실제로 커밋해야 하므로 @Transactional 을 붙이지 않고, 만든 데이터는 직접 지운다
+ */
+@SpringBootTest
+class MemberCountCacheTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberCountCache countCache;
+
+    @Test
+    public void cachedUntilTtl() {
+        MemberCountCache cache = new MemberCountCache(Duration.ofHours(1), 10);
+        MemberSearchCondition condition = teamCondition("teamA");
+
+        assertThat(cache.get(condition, () -> 1L)).isEqualTo(1);
+        assertThat(cache.get(condition, () -> 2L)).isEqualTo(1);
+        // 빈 문자열 조건은 조건이 없는 것과 같은 키
+        MemberSearchCondition blank = teamCondition("teamA");
+        blank.setUsername("");
+        assertThat(cache.get(blank, () -> 3L)).isEqualTo(1);
+    }
+
+    @Test
+    public void expiredEntryIsCountedAgain() {
+        MemberCountCache cache = new MemberCountCache(Duration.ZERO, 10);
+        MemberSearchCondition condition = teamCondition("teamA");
+
+        assertThat(cache.get(condition, () -> 1L)).isEqualTo(1);
+        assertThat(cache.get(condition, () -> 2L)).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidatedAfterCommit() {
+        MemberSearchCondition condition = teamCondition("countCacheCommit");
+        countCache.get(condition, () -> 1L);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> {
+                em.persist(new Team("countCacheCommit"));
+                em.flush();
+                // 커밋 전에는 이 트랜잭션의 변경이 섞이므로 캐시를 읽지도 채우지도 않는다
+                assertThat(countCache.get(condition, () -> 2L)).isEqualTo(2);
+                assertThat(countCache.get(condition, () -> 3L)).isEqualTo(3);
+            });
+
+            assertThat(countCache.get(condition, () -> 4L)).isEqualTo(4);
+        } finally {
+            deleteTeams("countCacheCommit");
+        }
+    }
+
+    @Test
+    public void keptAfterRollback() {
+        MemberSearchCondition condition = teamCondition("countCacheRollback");
+        countCache.get(condition, () -> 1L);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            em.persist(new Team("countCacheRollback"));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(countCache.get(condition, () -> 2L)).isEqualTo(1);
+    }
+
+    private void deleteTeams(String name) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createQuery("select t from Team t where t.name = :name", Team.class)
+                        .setParameter("name", name)
+                        .getResultList()
+                        .forEach(em::remove));
+    }
+
+    private static MemberSearchCondition teamCondition(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
@@ -0,0 +1,174 @@
+package querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import querydsl.dto.MemberCursor;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.MemberTeamDto;
+import querydsl.dto.QMemberTeamDto;
+import querydsl.dto.UsernameMatch;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+import querydsl.support.ExpectQueries;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.util.StringUtils.hasText;
+import static querydsl.entity.QTeam.team;
+import static querydsl.entity.QUser.user;
+
+/**
+ * 미리 만들어 둔 모양별 쿼리가 요청마다 where 파라미터로 만들던 예전 쿼리와 같은 결과를 내는지 검증
+ */
+@SpringBootTest
+@Transactional
+class MemberSearchQueriesTest {
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired
+    MemberSearchQueries searchQueries;
+    @Autowired
+    UserRepository userRepository;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new User("member1", 10, teamA));
+        em.persist(new User("member2", 20, teamA));
+        em.persist(new User("member3", 30, teamB));
+        em.persist(new User("member4", 40, teamB));
+        em.persist(new User("member4", 50)); // 팀 없음
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void allShapesMatchWhereParamQuery() {
+        // username, teamName, ageGoe, ageLoe 의 16 가지 조합
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            if ((shape & 1) != 0) {
+                condition.setUsername("member4");
+            }
+            if ((shape & 2) != 0) {
+                condition.setTeamName("teamB");
+            }
+            if ((shape & 4) != 0) {
+                condition.setAgeGoe(20);
+            }
+            if ((shape & 8) != 0) {
+                condition.setAgeLoe(40);
+            }
+
+            List<MemberTeamDto> expected = whereParam(condition);
+
+            assertThat(searchQueries.content(condition))
+                    .as("content, shape %d", shape)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(searchQueries.count(condition))
+                    .as("count, shape %d", shape)
+                    .isEqualTo(expected.size());
+        }
+    }
+
+    /**
+     * JPQL 은 기동 시 모양마다 한 번만 직렬화하고, 요청 때는 파라미터만 바인딩한다
+     */
+    @Test
+    public void requestsDoNotSerializeJpql() {
+        long serialized = searchQueries.serializations();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(30);
+
+        searchQueries.content(condition);
+        searchQueries.content(condition, 0, 1);
+        searchQueries.count(condition);
+        List<MemberTeamDto> first = searchQueries.afterCursor(condition, null, 1);
+        List<MemberTeamDto> next = searchQueries.afterCursor(condition,
+                MemberCursor.of(first.get(0)), 10);
+        condition.setUsername("mem");
+        condition.setUsernameMatch(UsernameMatch.PREFIX);
+        searchQueries.content(condition);
+
+        assertThat(serialized).isPositive();
+        assertThat(searchQueries.serializations()).isEqualTo(serialized);
+        assertThat(first).extracting("username").containsExactly("member3");
+        assertThat(next).extracting("username").containsExactly("member4");
+    }
+
+    @Test
+    @ExpectQueries(selects = 1)
+    public void searchPageSimpleSkipsContentWhenEmpty() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+
+        Page<MemberTeamDto> result = userRepository.searchPageSimple(condition, PageRequest.of(0, 3));
+
+        assertThat(result.getTotalElements()).isZero();
+        assertThat(result.getContent()).isEmpty();
+    }
+
+    @Test
+    @ExpectQueries(selects = 2)
+    public void searchPageSimpleCountsThenFetches() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Page<MemberTeamDto> result = userRepository.searchPageSimple(condition, PageRequest.of(0, 1));
+
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).extracting("teamName").containsExactly("teamA");
+    }
+
+    //기준값: 요청마다 where 파라미터로 만드는 검색 (SearchBenchmark.searchByWhereParam 과 같은 쿼리)
+    private List<MemberTeamDto> whereParam(MemberSearchCondition condition) {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        user.id,
+                        user.username,
+                        user.age,
+                        team.id,
+                        team.name))
+                .from(user)
+                .leftJoin(user.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .fetch();
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? user.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? user.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? user.age.loe(ageLoe) : null;
+    }
+}
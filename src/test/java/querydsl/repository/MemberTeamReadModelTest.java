@@ -0,0 +1,162 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * member_team 이 users left join team 과 같은지 검증
+ * 읽기 모델은 커밋 직전에 쓰므로 @Transactional 을 붙이지 않고 실제로 커밋한 뒤, 만든 데이터는 직접 지운다
+ */
+@SpringBootTest
+class MemberTeamReadModelTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    UserBulkOperations bulkOperations;
+
+    TransactionTemplate transaction;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        transaction = new TransactionTemplate(transactionManager);
+        teamAId = transaction.execute(status -> {
+            Team team = new Team("readModelTeamA");
+            em.persist(team);
+            return team.getId();
+        });
+        teamBId = transaction.execute(status -> {
+            Team team = new Team("readModelTeamB");
+            em.persist(team);
+            return team.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("select u from users u where u.team.id in (:teamIds)", User.class)
+                    .setParameter("teamIds", List.of(teamAId, teamBId))
+                    .getResultList()
+                    .forEach(em::remove);
+            em.flush();
+            em.remove(em.find(Team.class, teamAId));
+            em.remove(em.find(Team.class, teamBId));
+        });
+        assertInSync();
+    }
+
+    @Test
+    public void insert() {
+        insertUser("readModel1", 10, teamAId);
+        insertUser("readModel2", 20, teamBId);
+
+        assertInSync();
+        assertThat(readModelRows()).extracting(row -> row.get(1)).contains("readModel1", "readModel2");
+    }
+
+    @Test
+    public void update() {
+        Long userId = insertUser("readModel1", 10, teamAId);
+
+        transaction.executeWithoutResult(status -> {
+            User user = em.find(User.class, userId);
+            user.setUsername("readModel1-renamed");
+            user.setAge(11);
+            user.setTeam(em.getReference(Team.class, teamBId));
+        });
+
+        assertInSync();
+    }
+
+    @Test
+    public void delete() {
+        Long userId = insertUser("readModel1", 10, teamAId);
+        insertUser("readModel2", 20, teamAId);
+
+        transaction.executeWithoutResult(status -> em.remove(em.find(User.class, userId)));
+
+        assertInSync();
+    }
+
+    @Test
+    public void renameTeam() {
+        insertUser("readModel1", 10, teamAId);
+        insertUser("readModel2", 20, teamAId);
+
+        transaction.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("readModelTeamC"));
+
+        assertInSync();
+    }
+
+    @Test
+    public void rollbackIsNotWritten() {
+        insertUser("readModel1", 10, teamAId);
+
+        transaction.executeWithoutResult(status -> {
+            em.persist(new User("readModel2", 20, em.getReference(Team.class, teamAId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertInSync();
+    }
+
+    @Test
+    public void bulkUpdateIsMergedAgain() {
+        insertUser("readModel1", 10, teamAId);
+        insertUser("readModel2", 20, teamAId);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("readModelTeamA");
+
+        bulkOperations.addAge(condition, 5, progress -> {
+        });
+
+        assertInSync();
+    }
+
+    private Long insertUser(String username, int age, Long teamId) {
+        return transaction.execute(status -> {
+            User user = new User(username, age, em.getReference(Team.class, teamId));
+            em.persist(user);
+            return user.getId();
+        });
+    }
+
+    private void assertInSync() {
+        List<List<Object>> joined = rows("select u.user_id, u.username, u.age, u.team_id, t.name"
+                + " from users u left join team t on u.team_id = t.team_id order by u.user_id");
+        assertThat(readModelRows()).isEqualTo(joined);
+    }
+
+    private List<List<Object>> readModelRows() {
+        return rows("select user_id, username, age, team_id, team_name from member_team order by user_id");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Object>> rows(String sql) {
+        return transaction.execute(status -> ((List<Object[]>) em.createNativeQuery(sql).getResultList())
+                .stream()
+                .map(Arrays::asList)
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,143 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelCountExecutorTest {
+
+    ParallelCountExecutor executor;
+
+    @AfterEach
+    public void after() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void countsOnPoolThread() {
+        executor = new ParallelCountExecutor(new NoOpTransactionManager(), true, 2, 2);
+        AtomicReference<String> thread = new AtomicReference<>();
+
+        ParallelCountExecutor.PendingCount count = executor.start(() -> {
+            thread.set(Thread.currentThread().getName());
+            return 42;
+        });
+
+        assertThat(count.get()).isEqualTo(42);
+        assertThat(thread.get()).startsWith("search-count-");
+    }
+
+    @Test
+    public void countsOnCallerWhenRejected() throws Exception {
+        executor = new ParallelCountExecutor(new NoOpTransactionManager(), true, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        LongSupplier blocked = () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        };
+        ParallelCountExecutor.PendingCount running = executor.start(blocked);
+        ParallelCountExecutor.PendingCount queued = executor.start(blocked);
+        AtomicReference<String> thread = new AtomicReference<>();
+
+        // 스레드 1개, 대기열 1개가 모두 찼으므로 호출 스레드에서 센다
+        ParallelCountExecutor.PendingCount rejected = executor.start(() -> {
+            thread.set(Thread.currentThread().getName());
+            return 7;
+        });
+
+        assertThat(rejected.get()).isEqualTo(7);
+        assertThat(thread.get()).isEqualTo(Thread.currentThread().getName());
+        release.countDown();
+        assertThat(running.get()).isEqualTo(1);
+        assertThat(queued.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void cancelDropsQueuedCountButLetsRunningOneFinish() throws Exception {
+        executor = new ParallelCountExecutor(new NoOpTransactionManager(), true, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger queuedRuns = new AtomicInteger();
+        ParallelCountExecutor.PendingCount running = executor.start(() -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.incrementAndGet();
+            return 1;
+        });
+        ParallelCountExecutor.PendingCount queued = executor.start(() -> {
+            queuedRuns.incrementAndGet();
+            return 2;
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        running.cancel();
+        queued.cancel();
+        release.countDown();
+        // 같은 풀에 하나 더 넣어서 앞의 작업들이 다 지나갔는지 확인한다
+        assertThat(executor.start(() -> 3).get()).isEqualTo(3);
+
+        assertThat(finished.get()).isEqualTo(1); // 인터럽트하지 않으므로 끝까지 돈다
+        assertThat(queuedRuns.get()).isZero();
+    }
+
+    @Test
+    public void notAvailableInTransactionOrWhenDisabled() {
+        executor = new ParallelCountExecutor(new NoOpTransactionManager(), true, 1, 1);
+        assertThat(executor.isAvailable()).isTrue();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThat(executor.isAvailable()).isFalse();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        ParallelCountExecutor disabled = new ParallelCountExecutor(new NoOpTransactionManager(), false, 1, 1);
+        try {
+            assertThat(disabled.isAvailable()).isFalse();
+        } finally {
+            disabled.shutdown();
+        }
+    }
+
+    /**
+     * 카운트를 감싸는 읽기 전용 트랜잭션은 이 테스트에서는 아무것도 하지 않는다
+     */
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
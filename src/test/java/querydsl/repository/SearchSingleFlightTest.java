@@ -0,0 +1,139 @@
+package querydsl.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchSingleFlightTest {
+
+    private static final List<?> KEY = List.of("teamA", 0);
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    MemberCountCache countCache = new MemberCountCache(Duration.ofSeconds(30), 10);
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        SearchSingleFlight singleFlight = new SearchSingleFlight(registry, countCache, true, Duration.ofSeconds(10));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Queue<List<String>> results = new ConcurrentLinkedQueue<>();
+        int callers = 8;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            threads.add(start(() -> results.add(singleFlight.execute("search", KEY,
+                    blockingLoader(executions, release), ArrayList::new))));
+        }
+        awaitBlocked(threads);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(results).hasSize(callers).allSatisfy(result -> assertThat(result).containsExactly("member1"));
+        // 모두 서로 다른 사본을 받는다
+        Set<List<String>> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(results);
+        assertThat(distinct).hasSize(callers);
+        assertThat(calls("executed")).isEqualTo(1);
+        assertThat(calls("coalesced")).isEqualTo(callers - 1);
+        assertThat(registry.get("querydsl.search.single-flight.waiters").summary().totalAmount())
+                .isEqualTo(callers - 1);
+        assertThat(registry.get("querydsl.search.single-flight.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    public void commitAfterStartIsNotJoined() throws Exception {
+        SearchSingleFlight singleFlight = new SearchSingleFlight(registry, countCache, true, Duration.ofSeconds(10));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = start(() -> singleFlight.execute("search", KEY,
+                blockingLoader(executions, release), ArrayList::new));
+        awaitBlocked(List.of(leader));
+
+        countCache.invalidateAll(); // 실행 중에 변경이 커밋됨
+        List<String> fresh = singleFlight.execute("search", KEY,
+                () -> new ArrayList<>(List.of("member2")), ArrayList::new);
+        release.countDown();
+        leader.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(fresh).containsExactly("member2");
+        assertThat(calls("executed")).isEqualTo(2);
+        assertThat(calls("coalesced")).isZero();
+    }
+
+    @Test
+    public void waiterFallsBackAfterTimeout() throws Exception {
+        SearchSingleFlight singleFlight = new SearchSingleFlight(registry, countCache, true, Duration.ofMillis(50));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = start(() -> singleFlight.execute("search", KEY,
+                blockingLoader(executions, release), ArrayList::new));
+        awaitBlocked(List.of(leader));
+
+        List<String> own = singleFlight.execute("search", KEY,
+                () -> new ArrayList<>(List.of("member2")), ArrayList::new);
+        release.countDown();
+        leader.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(own).containsExactly("member2");
+        assertThat(calls("timed-out")).isEqualTo(1);
+        assertThat(calls("coalesced")).isZero();
+    }
+
+    private static Supplier<List<String>> blockingLoader(AtomicInteger executions, CountDownLatch release) {
+        return () -> {
+            executions.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ArrayList<>(List.of("member1"));
+        };
+    }
+
+    private static Thread start(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * 실행하는 호출은 release 를, 나머지는 결과를 기다리며 멈출 때까지 기다린다
+     */
+    private static void awaitBlocked(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING
+                    || thread.getState() == Thread.State.TIMED_WAITING)) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("callers did not block");
+    }
+
+    private double calls(String result) {
+        return registry.get("querydsl.search.single-flight.calls")
+                .tag("method", "search")
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,92 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import querydsl.dto.MemberTeamDto;
+import querydsl.dto.TeamMembersDto;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+import querydsl.support.ExpectQueries;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TeamQueryRepositoryTest {
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired
+    TeamQueryRepository teamQueryRepository;
+
+    Long teamAId;
+    Long teamBId;
+    Long teamCId;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        Team teamC = new Team("teamC"); // 회원 없음
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(teamC);
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new User("memberA" + i, i * 10, teamA));
+        }
+        em.persist(new User("memberB1", 50, teamB));
+        em.flush();
+        em.clear();
+        teamAId = teamA.getId();
+        teamBId = teamB.getId();
+        teamCId = teamC.getId();
+    }
+
+    /**
+     * 팀 페이지 한 번, 회원 한 번 (페이지가 다 차지 않으므로 count 쿼리는 생략된다)
+     */
+    @Test
+    @ExpectQueries(selects = 2, statements = 2)
+    public void teamsWithMembersInTwoQueries() {
+        Page<TeamMembersDto> page = teamQueryRepository.findTeamsWithMembers(PageRequest.of(0, 100), 1, 2);
+
+        TeamMembersDto teamA = team(page, teamAId);
+        assertThat(teamA.getMemberCount()).isEqualTo(4);
+        assertThat(teamA.getMembers()).extracting(MemberTeamDto::getUsername).containsExactly("memberA2", "memberA3");
+        assertThat(teamA.getMembers()).allSatisfy(member -> assertThat(member.getTeamName()).isEqualTo("teamA"));
+
+        TeamMembersDto teamB = team(page, teamBId);
+        assertThat(teamB.getMemberCount()).isEqualTo(1);
+        assertThat(teamB.getMembers()).isEmpty(); // 구간 밖
+
+        TeamMembersDto teamC = team(page, teamCId);
+        assertThat(teamC.getMemberCount()).isZero();
+        assertThat(teamC.getMembers()).isEmpty();
+    }
+
+    @Test
+    public void memberEndDoesNotOverflow() {
+        Page<TeamMembersDto> page = teamQueryRepository.findTeamsWithMembers(PageRequest.of(0, 100),
+                1, Integer.MAX_VALUE);
+
+        assertThat(team(page, teamAId).getMembers()).extracting(MemberTeamDto::getUsername)
+                .containsExactly("memberA2", "memberA3", "memberA4");
+    }
+
+    private static TeamMembersDto team(Page<TeamMembersDto> page, Long teamId) {
+        List<TeamMembersDto> content = page.getContent();
+        return content.stream()
+                .filter(dto -> dto.getTeamId().equals(teamId))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,180 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.TeamStatsDto;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 통계는 커밋된 변경만 반영하므로 @Transactional 을 붙이지 않고 실제로 커밋한 뒤, 만든 데이터는 직접 지운다
+ */
+@SpringBootTest
+class TeamStatisticsTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    TeamStatistics teamStatistics;
+    @Autowired
+    UserBulkOperations bulkOperations;
+
+    TransactionTemplate transaction;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        transaction = new TransactionTemplate(transactionManager);
+        teamAId = inTransaction(() -> {
+            Team team = new Team("statsTeamA");
+            em.persist(team);
+            return team.getId();
+        });
+        teamBId = inTransaction(() -> {
+            Team team = new Team("statsTeamB");
+            em.persist(team);
+            return team.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        // 다른 읽기 모델도 따라오도록 벌크 delete 대신 엔티티로 지운다
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("select u from users u where u.team.id in (:teamIds)", User.class)
+                    .setParameter("teamIds", List.of(teamAId, teamBId))
+                    .getResultList()
+                    .forEach(em::remove);
+            em.flush();
+            em.remove(em.find(Team.class, teamAId));
+            em.remove(em.find(Team.class, teamBId));
+        });
+    }
+
+    @Test
+    public void insert() {
+        insertUser("stats1", 10, teamAId);
+        insertUser("stats2", 30, teamAId);
+
+        assertStats(teamAId, 2, 40, 10, 30);
+        assertStats(teamBId, 0, 0, null, null);
+    }
+
+    @Test
+    public void moveTeam() {
+        Long userId = insertUser("stats1", 10, teamAId);
+        insertUser("stats2", 30, teamAId);
+
+        transaction.executeWithoutResult(status ->
+                em.find(User.class, userId).setTeam(em.getReference(Team.class, teamBId)));
+
+        assertStats(teamAId, 1, 30, 30, 30);
+        assertStats(teamBId, 1, 10, 10, 10);
+    }
+
+    @Test
+    public void updateAge() {
+        Long userId = insertUser("stats1", 10, teamAId);
+        insertUser("stats2", 30, teamAId);
+
+        transaction.executeWithoutResult(status -> em.find(User.class, userId).setAge(50));
+
+        assertStats(teamAId, 2, 80, 30, 50);
+    }
+
+    @Test
+    public void delete() {
+        Long userId = insertUser("stats1", 10, teamAId);
+        insertUser("stats2", 30, teamAId);
+
+        transaction.executeWithoutResult(status -> em.remove(em.find(User.class, userId)));
+
+        assertStats(teamAId, 1, 30, 30, 30);
+    }
+
+    @Test
+    public void rollbackIsNotCounted() {
+        insertUser("stats1", 10, teamAId);
+
+        transaction.executeWithoutResult(status -> {
+            em.persist(new User("stats2", 30, em.getReference(Team.class, teamAId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertStats(teamAId, 1, 10, 10, 10);
+    }
+
+    @Test
+    public void reconcileAfterBulkUpdate() {
+        insertUser("stats1", 10, teamAId);
+        insertUser("stats2", 30, teamAId);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("statsTeamA");
+
+        bulkOperations.addAge(condition, 5, progress -> {
+        });
+        teamStatistics.reconcileIfDirty();
+
+        assertStats(teamAId, 2, 50, 15, 35);
+    }
+
+    @Test
+    public void reconcileDuringTransaction() {
+        insertUser("stats1", 10, teamAId);
+
+        transaction.executeWithoutResult(status -> {
+            em.persist(new User("stats2", 30, em.getReference(Team.class, teamAId)));
+            em.flush();
+            // 커밋 전에 다른 스레드에서 재집계가 끝난다
+            Thread reconcile = new Thread(teamStatistics::reconcile);
+            reconcile.start();
+            try {
+                reconcile.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        teamStatistics.reconcileIfDirty();
+
+        assertStats(teamAId, 2, 40, 10, 30);
+    }
+
+    private Long insertUser(String username, int age, Long teamId) {
+        return inTransaction(() -> {
+            User user = new User(username, age, em.getReference(Team.class, teamId));
+            em.persist(user);
+            return user.getId();
+        });
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transaction.execute(status -> action.get());
+    }
+
+    private void assertStats(Long teamId, long count, long sum, Integer min, Integer max) {
+        TeamStatsDto stats = teamStatistics.findAll().stream()
+                .filter(dto -> dto.getTeamId().equals(teamId))
+                .findFirst()
+                .orElseThrow();
+        assertThat(stats.getMemberCount()).isEqualTo(count);
+        assertThat(stats.getAgeSum()).isEqualTo(sum);
+        assertThat(stats.getAgeMin()).isEqualTo(min);
+        assertThat(stats.getAgeMax()).isEqualTo(max);
+    }
+}
@@ -0,0 +1,181 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.BulkProgress;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 청크마다 커밋하므로 @Transactional 을 붙이지 않고 실제로 커밋한 뒤, 만든 데이터는 직접 지운다
+ */
+@SpringBootTest
+class UserBulkOperationsTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    TransactionTemplate transaction;
+    UserBulkOperations bulkOperations;
+    List<UsersBulkUpdatedEvent> events = new ArrayList<>();
+    List<BulkProgress> progress = new ArrayList<>();
+    Long teamAId;
+    Long teamBId;
+    List<Long> teamAUserIds = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        transaction = new TransactionTemplate(transactionManager);
+        // 읽기 모델, 통계도 따라오도록 이벤트는 컨텍스트에도 그대로 넘긴다
+        bulkOperations = new UserBulkOperations(em, transactionManager, event -> {
+            events.add((UsersBulkUpdatedEvent) event);
+            eventPublisher.publishEvent(event);
+        }, 2);
+        transaction.executeWithoutResult(status -> {
+            Team teamA = new Team("bulkTeamA");
+            Team teamB = new Team("bulkTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            for (int i = 1; i <= 5; i++) {
+                User member = new User("bulk" + i, i * 10, teamA);
+                em.persist(member);
+                teamAUserIds.add(member.getId());
+                // 구간 안에 끼어 있는 다른 팀 회원은 바뀌지 않아야 한다
+                em.persist(new User("bulkOther" + i, i * 10, teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        // 다른 읽기 모델도 따라오도록 벌크 delete 대신 엔티티로 지운다
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("select u from users u where u.team.id in (:teamIds)", User.class)
+                    .setParameter("teamIds", List.of(teamAId, teamBId))
+                    .getResultList()
+                    .forEach(em::remove);
+            em.flush();
+            em.remove(em.find(Team.class, teamAId));
+            em.remove(em.find(Team.class, teamBId));
+        });
+    }
+
+    @Test
+    public void updatesOnlyMatchingRowsChunkByChunk() {
+        long updated = bulkOperations.addAge(teamA(), 5, progress::add);
+
+        assertThat(updated).isEqualTo(5);
+        assertThat(ages(teamAId)).containsExactly(15, 25, 35, 45, 55);
+        assertThat(ages(teamBId)).containsExactly(10, 20, 30, 40, 50);
+
+        // user_id 최솟값부터 2개 구간씩, 마지막 구간은 최댓값에서 끊는다
+        long minId = teamAUserIds.get(0);
+        long maxId = teamAUserIds.get(teamAUserIds.size() - 1);
+        List<List<Long>> expected = new ArrayList<>();
+        for (long fromId = minId; fromId <= maxId; fromId += 2) {
+            expected.add(List.of(fromId, Math.min(fromId + 1, maxId)));
+        }
+        assertThat(events).extracting(event -> List.of(event.getFromId(), event.getToId()))
+                .containsExactlyElementsOf(expected);
+        assertThat(progress).extracting(p -> List.of(p.getFromId(), p.getToId()))
+                .containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void progressIsReportedAfterEachChunk() {
+        bulkOperations.rename(teamA(), "bulkRenamed", progress::add);
+
+        long maxId = teamAUserIds.get(teamAUserIds.size() - 1);
+        assertThat(progress).isNotEmpty().allSatisfy(p -> assertThat(p.getMaxId()).isEqualTo(maxId));
+        long total = 0;
+        for (BulkProgress p : progress) {
+            total += p.getUpdated();
+            assertThat(p.getTotalUpdated()).isEqualTo(total);
+            long inChunk = teamAUserIds.stream().filter(id -> id >= p.getFromId() && id <= p.getToId()).count();
+            assertThat(p.getUpdated()).isEqualTo(inChunk);
+        }
+        assertThat(total).isEqualTo(5);
+        assertThat(progress).hasSameSizeAs(events);
+    }
+
+    @Test
+    public void noMatchDoesNothing() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bulkTeamNone");
+
+        assertThat(bulkOperations.addAge(condition, 5, progress::add)).isZero();
+        assertThat(events).isEmpty();
+        assertThat(progress).isEmpty();
+    }
+
+    @Test
+    public void rejectsActiveTransaction() {
+        transaction.executeWithoutResult(status ->
+                assertThatThrownBy(() -> bulkOperations.addAge(teamA(), 5, progress::add))
+                        .isInstanceOf(IllegalStateException.class));
+
+        assertThat(events).isEmpty();
+        assertThat(ages(teamAId)).containsExactly(10, 20, 30, 40, 50);
+    }
+
+    /**
+     * open-in-view 처럼 트랜잭션 없이 영속성 컨텍스트만 묶인 상태에서 불러도 다시 조회하면 바뀐 나이를 읽는다
+     */
+    @Test
+    public void boundEntityManagerSeesNewAge() {
+        EntityManager requestEm = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(requestEm));
+        try {
+            Long userId = teamAUserIds.get(0);
+            User loaded = em.find(User.class, userId);
+            assertThat(loaded.getAge()).isEqualTo(10);
+
+            bulkOperations.addAge(teamA(), 5, progress::add);
+
+            assertThat(em.contains(loaded)).isFalse();
+            assertThat(em.find(User.class, userId).getAge()).isEqualTo(15);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            EntityManagerFactoryUtils.closeEntityManager(requestEm);
+        }
+    }
+
+    private static MemberSearchCondition teamA() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bulkTeamA");
+        return condition;
+    }
+
+    private List<Integer> ages(Long teamId) {
+        return transaction.execute(status -> em.createQuery(
+                        "select u.age from users u where u.team.id = :teamId order by u.id", Integer.class)
+                .setParameter("teamId", teamId)
+                .getResultList());
+    }
+}
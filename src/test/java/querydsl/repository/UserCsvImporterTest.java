@@ -0,0 +1,153 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.ImportResult;
+import querydsl.dto.ImportRowError;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 가져오기는 청크마다 커밋하므로 @Transactional 을 붙이지 않고, 만든 데이터는 직접 지운다
+ */
+@SpringBootTest
+class UserCsvImporterTest {
+
+    private static final String IMPORTED = " where u.username like 'csv%' or t.name like 'csvTeam%'";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate transaction;
+    UserCsvImporter importer;
+
+    @BeforeEach
+    public void before() {
+        transaction = new TransactionTemplate(transactionManager);
+        importer = new UserCsvImporter(em, transactionManager, 3, 10);
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.execute("alter table users drop constraint if exists chk_csv_import");
+        // 다른 읽기 모델도 따라오도록 벌크 delete 대신 엔티티로 지운다
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("select u from users u left join u.team t" + IMPORTED, User.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.flush();
+            em.createQuery("select t from Team t where t.name like 'csvTeam%'", Team.class)
+                    .getResultList()
+                    .forEach(em::remove);
+        });
+    }
+
+    @Test
+    public void split() {
+        assertThat(UserCsvImporter.Row.split("a,10,teamA")).containsExactly("a", "10", "teamA");
+        assertThat(UserCsvImporter.Row.split("\"a,b\",10,\"team \"\"A\"\"\""))
+                .containsExactly("a,b", "10", "team \"A\"");
+        assertThat(UserCsvImporter.Row.split("a,10,")).containsExactly("a", "10", "");
+        assertThat(UserCsvImporter.Row.split("\"\",10")).containsExactly("", "10");
+        assertThatThrownBy(() -> UserCsvImporter.Row.split("\"a,10"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void parse() {
+        UserCsvImporter.Row row = UserCsvImporter.Row.parse(2, " member1 , 10 , teamA ");
+        assertThat(row.line).isEqualTo(2);
+        assertThat(row.username).isEqualTo("member1");
+        assertThat(row.age).isEqualTo(10);
+        assertThat(row.teamName).isEqualTo("teamA");
+        assertThat(UserCsvImporter.Row.parse(3, "member2,20").teamName).isNull();
+        assertThat(UserCsvImporter.Row.parse(4, "member3,30, ").teamName).isNull();
+
+        assertThatThrownBy(() -> UserCsvImporter.Row.parse(5, "member1"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("1개");
+        assertThatThrownBy(() -> UserCsvImporter.Row.parse(5, "member1,10,teamA,extra"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("4개");
+        assertThatThrownBy(() -> UserCsvImporter.Row.parse(5, " ,10"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UserCsvImporter.Row.parse(5, "member1,ten"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UserCsvImporter.Row.parse(5, "member1,-1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void isHeader() {
+        assertThat(UserCsvImporter.Row.isHeader("username,age,teamName")).isTrue();
+        assertThat(UserCsvImporter.Row.isHeader("\"USERNAME\",age")).isTrue();
+        assertThat(UserCsvImporter.Row.isHeader("username1,10")).isFalse();
+        assertThat(UserCsvImporter.Row.isHeader("usernameA,10,teamA")).isFalse();
+    }
+
+    @Test
+    public void headerAndBomAreSkipped() throws IOException {
+        ImportResult result = importer.importCsv(reader("\uFEFFusername,age,teamName\ncsv1,10,csvTeamA\n"));
+
+        assertThat(result.getRows()).isEqualTo(1);
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getTeamsCreated()).isEqualTo(1);
+    }
+
+    @Test
+    public void firstRowStartingWithUsernameIsData() throws IOException {
+        ImportResult result = importer.importCsv(reader("\uFEFFusernameCsv,10,csvTeamA\n"));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(usernames()).containsExactly("usernameCsv");
+    }
+
+    @Test
+    public void failingChunkIsRetriedRowByRow() throws IOException {
+        // DB 에서만 걸러지는 행을 만든다
+        jdbcTemplate.execute("alter table users add constraint chk_csv_import check (username <> 'csvBad')");
+
+        ImportResult result = importer.importCsv(reader("username,age,teamName\n"
+                + "csv1,10,csvTeamA\n"      // 청크 1 (2~4행)
+                + "csvBad,20,csvTeamA\n"
+                + "csv3,30,csvTeamB\n"
+                + "csv4,notNumber\n"        // 파싱 실패, 청크에 들어가지 않는다
+                + "csv5,50\n"               // 청크 2 (6~7행)
+                + "csv6,60,csvTeamB\n"));
+
+        assertThat(result.getRows()).isEqualTo(6);
+        assertThat(result.getImported()).isEqualTo(4);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getTeamsCreated()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(ImportRowError::getLine).containsExactly(3L, 5L);
+        assertThat(usernames()).containsExactly("csv1", "csv3", "csv5", "csv6");
+    }
+
+    private static BufferedReader reader(String csv) {
+        return new BufferedReader(new StringReader(csv));
+    }
+
+    private List<String> usernames() {
+        return transaction.execute(status -> em.createQuery(
+                        "select u.username from users u left join u.team t" + IMPORTED + " order by u.username",
+                        String.class)
+                .getResultList());
+    }
+}
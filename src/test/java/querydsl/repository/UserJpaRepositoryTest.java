@@ -2,6 +2,8 @@ package querydsl.repository;
 
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.resource.jdbc.ResourceRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -10,9 +12,11 @@ import querydsl.dto.MemberSearchCondition;
 import querydsl.dto.MemberTeamDto;
 import querydsl.entity.Team;
 import querydsl.entity.User;
+import querydsl.support.ExpectQueries;
 
 import javax.persistence.EntityManager;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
@@ -54,6 +58,7 @@ class UserJpaRepositoryTest {
     }
 
     @Test
+    @ExpectQueries(selects = 1)
     public void searchTest() {
         Team teamA = new Team("teamA");
         Team teamB = new Team("teamB");
@@ -75,4 +80,41 @@ class UserJpaRepositoryTest {
                 memberJpaRepository.search(condition);
         assertThat(result).extracting("username").containsExactly("member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchStreamReturnsSameRowsAsSearch() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new User("member" + i, i * 10, i % 2 == 0 ? teamA : null));
+        }
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        List<MemberTeamDto> streamed = new ArrayList<>();
+        memberJpaRepository.searchStream(condition, streamed::add);
+
+        assertThat(streamed).hasSize(4).containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+    }
+
+    /**
+     * 소비하는 쪽이 도중에 예외를 던져도 스크롤(ResultSet, PreparedStatement)을 트랜잭션 끝까지 잡아 두지 않는다
+     */
+    @Test
+    public void searchStreamReleasesScrollWhenConsumerThrows() {
+        for (int i = 1; i <= 3; i++) {
+            em.persist(new User("member" + i, i * 10));
+        }
+        em.flush();
+        ResourceRegistry resources = em.unwrap(SessionImplementor.class).getJdbcCoordinator().getResourceRegistry();
+        List<Boolean> openWhileStreaming = new ArrayList<>();
+
+        assertThatThrownBy(() -> memberJpaRepository.searchStream(new MemberSearchCondition(), dto -> {
+            openWhileStreaming.add(resources.hasRegisteredResources());
+            throw new IllegalStateException("consumer failed");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("consumer failed");
+
+        assertThat(openWhileStreaming).containsExactly(true);
+        assertThat(resources.hasRegisteredResources()).isFalse();
+    }
+}
@@ -0,0 +1,172 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.MemberTeamDto;
+import querydsl.dto.UsernameMatch;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * R2DBC 네이티브 SQL 이 JPA 검색과 같은 결과를 내는지 검증
+ * R2DBC 는 다른 커넥션으로 같은 메모리 DB(querydsl.reactive.url)를 읽으므로 @Transactional 을 붙이지 않고 커밋한 뒤,
+ * 만든 데이터는 직접 지운다
+ */
+@SpringBootTest
+class UserReactiveRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    UserReactiveRepository reactiveRepository;
+    @Autowired
+    MemberSearchQueries searchQueries;
+
+    TransactionTemplate transaction;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            Team teamA = new Team("rxTeamA");
+            Team teamB = new Team("rxTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            em.persist(new User("rx_1", 10, teamA));
+            em.persist(new User("rxA1", 20, teamA));
+            em.persist(new User("rx%2", 30, teamA));
+            em.persist(new User("rxB2", 40, teamB));
+            em.persist(new User("rxB2", 50, teamA));
+            em.persist(new User("rxNone", 60)); // 팀 없음, team_name 은 null
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        // 다른 읽기 모델도 따라오도록 벌크 delete 대신 엔티티로 지운다
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("select u from users u where u.username like 'rx%'", User.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.flush();
+            em.remove(em.find(Team.class, teamAId));
+            em.remove(em.find(Team.class, teamBId));
+        });
+    }
+
+    @Test
+    public void allShapesMatchJpa() {
+        // username, teamName, ageGoe, ageLoe 의 16 가지 조합
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            if ((shape & 1) != 0) {
+                condition.setUsername("rxB2");
+            }
+            if ((shape & 2) != 0) {
+                condition.setTeamName("rxTeamA");
+            }
+            if ((shape & 4) != 0) {
+                condition.setAgeGoe(20);
+            }
+            if ((shape & 8) != 0) {
+                condition.setAgeLoe(50);
+            }
+            assertSameAsJpa(condition, "shape " + shape);
+        }
+    }
+
+    /**
+     * like 패턴의 _ 와 % 는 이스케이프해서 글자 그대로 찾는다
+     */
+    @Test
+    public void likeTermsAreEscaped() {
+        MemberSearchCondition prefix = condition("rx_", UsernameMatch.PREFIX);
+        MemberSearchCondition contains = condition("x%2", UsernameMatch.CONTAINS);
+
+        assertSameAsJpa(prefix, "prefix");
+        assertSameAsJpa(contains, "contains");
+        assertThat(reactiveRepository.search(prefix).map(MemberTeamDto::getUsername).collectList().block())
+                .containsExactly("rx_1");
+        assertThat(reactiveRepository.search(contains).map(MemberTeamDto::getUsername).collectList().block())
+                .containsExactly("rx%2");
+    }
+
+    @Test
+    public void teamNameIsMapped() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("rx");
+        condition.setUsernameMatch(UsernameMatch.PREFIX);
+
+        assertThat(reactiveRepository.search(condition).collectList().block())
+                .extracting(MemberTeamDto::getUsername, MemberTeamDto::getTeamName)
+                .containsExactlyInAnyOrder(
+                        tuple("rx_1", "rxTeamA"), tuple("rxA1", "rxTeamA"), tuple("rx%2", "rxTeamA"),
+                        tuple("rxB2", "rxTeamB"), tuple("rxB2", "rxTeamA"), tuple("rxNone", null));
+    }
+
+    @Test
+    public void readModelMatchesJpa() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("rxTeamA");
+        condition.setAgeGoe(20);
+        condition.setReadModel(true);
+
+        assertSameAsJpa(condition, "read model");
+    }
+
+    /**
+     * limit, offset 바인딩 순서가 바뀌면 행 수가 달라지도록 offset 2, size 1 로 본다
+     */
+    @Test
+    public void searchPageBindsLimitThenOffset() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("rxTeamA");
+
+        Page<MemberTeamDto> page = reactiveRepository.searchPage(condition, PageRequest.of(2, 1)).block();
+
+        assertThat(page.getContent()).hasSize(1)
+                .allSatisfy(dto -> assertThat(dto.getTeamName()).isEqualTo("rxTeamA"));
+        assertThat(page.getTotalElements()).isEqualTo(4); // 페이지가 찼으므로 카운트 쿼리로 센다
+
+        Page<MemberTeamDto> all = reactiveRepository.searchPage(condition, PageRequest.of(0, 10)).block();
+        assertThat(all.getContent()).containsExactlyInAnyOrderElementsOf(searchQueries.content(condition));
+        assertThat(all.getTotalElements()).isEqualTo(4);
+    }
+
+    private void assertSameAsJpa(MemberSearchCondition condition, String description) {
+        List<MemberTeamDto> expected = searchQueries.content(condition);
+        assertThat(reactiveRepository.search(condition).collectList().block())
+                .as("content, %s", description)
+                .containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(reactiveRepository.count(condition).block())
+                .as("count, %s", description)
+                .isEqualTo(searchQueries.count(condition));
+    }
+
+    private static MemberSearchCondition condition(String username, UsernameMatch match) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameMatch(match);
+        return condition;
+    }
+}
@@ -0,0 +1,77 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import querydsl.dto.EstimatedPage;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.MemberTeamDto;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "querydsl.search.count-estimate-threshold=3")
+@Transactional
+class UserRepositoryEstimateTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    MemberSearchQueries searchQueries;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new User("member" + i, i * 10, teamA));
+        }
+        em.persist(new User("noTeam", 60));
+        em.flush();
+    }
+
+    @Test
+    public void cappedCountStopsAtLimit() {
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+
+        assertThat(searchQueries.cappedCount(teamA, 4)).isEqualTo(4);
+        assertThat(searchQueries.cappedCount(teamA, 10)).isEqualTo(5);
+        teamA.setAgeGoe(40);
+        assertThat(searchQueries.cappedCount(teamA, 10)).isEqualTo(2);
+    }
+
+    @Test
+    public void overThresholdIsEstimated() {
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+
+        Page<MemberTeamDto> result = userRepository.searchPageComplex(teamA, PageRequest.of(0, 2));
+
+        assertThat(result).isInstanceOf(EstimatedPage.class);
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.getContent()).hasSize(2);
+    }
+
+    @Test
+    public void underThresholdIsExact() {
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        teamA.setAgeGoe(30);
+        teamA.setAgeLoe(40);
+
+        Page<MemberTeamDto> result = userRepository.searchPageComplex(teamA, PageRequest.of(0, 1));
+
+        assertThat(result).isNotInstanceOf(EstimatedPage.class);
+        assertThat(result.getTotalElements()).isEqualTo(2);
+    }
+}
@@ -6,10 +6,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
+import querydsl.dto.MemberCursor;
+import querydsl.dto.MemberCursorPage;
 import querydsl.dto.MemberSearchCondition;
 import querydsl.dto.MemberTeamDto;
+import querydsl.dto.UsernameMatch;
 import querydsl.entity.Team;
 import querydsl.entity.User;
+import querydsl.support.ExpectQueries;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -39,6 +43,7 @@ class UserRepositoryTest {
     }
 
     @Test
+    @ExpectQueries(selects = 1)
     public void searchTest() {
         Team teamA = new Team("teamA");
         Team teamB = new Team("teamB");
@@ -61,6 +66,26 @@ class UserRepositoryTest {
         assertThat(result).extracting("username").containsExactly("member4");
     }
 
+    @Test
+    @ExpectQueries(selects = 2)
+    public void searchUsernameMatchTest() {
+        em.persist(new User("zx_alpha", 10));
+        em.persist(new User("zxbalpha", 20));
+        em.persist(new User("zx_beta", 30));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("zx_");
+        condition.setUsernameMatch(UsernameMatch.PREFIX);
+        // '_' 는 like 의 와일드카드가 아니라 글자로 비교해야 한다
+        assertThat(userRepository.search(condition))
+                .extracting("username").containsExactlyInAnyOrder("zx_alpha", "zx_beta");
+
+        condition.setUsername("alph");
+        condition.setUsernameMatch(UsernameMatch.CONTAINS);
+        assertThat(userRepository.search(condition))
+                .extracting("username").containsExactlyInAnyOrder("zx_alpha", "zxbalpha");
+    }
+
     @Test
     public void searchSimpleTest() {
         Team teamA = new Team("teamA");
@@ -84,4 +109,47 @@ class UserRepositoryTest {
         assertThat(result).extracting("username").contains("member1");
     }
 
+    @Test
+    public void searchComplexTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new User("member1", 10, teamA));
+        em.persist(new User("member2", 20, teamA));
+        em.persist(new User("member3", 30, teamB));
+        em.persist(new User("member4", 40, teamB));
+        MemberSearchCondition noTeam = new MemberSearchCondition();
+        MemberSearchCondition withTeam = new MemberSearchCondition();
+        withTeam.setTeamName("teamB");
+
+        // 첫 페이지가 가득 차야 카운트 쿼리가 나간다
+        Page<MemberTeamDto> all = userRepository.searchPageComplex(noTeam, PageRequest.of(0, 3));
+        Page<MemberTeamDto> teamB = userRepository.searchPageComplex(withTeam, PageRequest.of(0, 1));
+
+        assertThat(all.getTotalElements()).isEqualTo(4);
+        assertThat(teamB.getTotalElements()).isEqualTo(2);
+        assertThat(teamB.getContent()).extracting("teamName").containsExactly("teamB");
+    }
+
+    @Test
+    public void searchByCursorTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new User("member1", 10, teamA));
+        em.persist(new User("member2", 20, teamA));
+        em.persist(new User("member3", 20, teamA));
+        em.persist(new User("member4", 40, teamA));
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        MemberCursorPage first = userRepository.searchByCursor(condition, null, 2);
+        MemberCursorPage second = userRepository.searchByCursor(condition,
+                MemberCursor.decode(first.getNextCursor()), 2);
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(second.isHasNext()).isFalse();
+    }
+
 }
\ No newline at end of file
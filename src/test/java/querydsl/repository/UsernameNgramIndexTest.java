@@ -0,0 +1,205 @@
+package querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import querydsl.dto.MemberSearchCondition;
+import querydsl.dto.MemberTeamDto;
+import querydsl.dto.UsernameMatch;
+import querydsl.entity.Team;
+import querydsl.entity.User;
+import querydsl.support.ExpectQueries;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 색인은 커밋된 변경만 반영하므로 @Transactional 을 붙이지 않고 실제로 커밋한 뒤, 만든 데이터는 직접 지운다
+ */
+@SpringBootTest
+class UsernameNgramIndexTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    UsernameNgramIndex ngramIndex;
+    @Autowired
+    MemberSearchQueries searchQueries;
+    @Autowired
+    UserBulkOperations bulkOperations;
+
+    TransactionTemplate transaction;
+    Long teamId;
+    Long alphaId;
+    Long betaId;
+    Long alphabetId;
+
+    @BeforeEach
+    public void before() throws InterruptedException {
+        transaction = new TransactionTemplate(transactionManager);
+        awaitReady(ngramIndex);
+        teamId = transaction.execute(status -> {
+            Team team = new Team("ngTeam");
+            em.persist(team);
+            return team.getId();
+        });
+        alphaId = insertUser("ngAlpha");
+        betaId = insertUser("ngBeta");
+        alphabetId = insertUser("ngAlphabet");
+    }
+
+    @AfterEach
+    public void after() {
+        // 다른 읽기 모델도 따라오도록 벌크 delete 대신 엔티티로 지운다
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("select u from users u where u.username like 'ng%'", User.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.flush();
+            em.remove(em.find(Team.class, teamId));
+        });
+    }
+
+    @Test
+    public void findsCommittedUsers() {
+        assertThat(ngramIndex.findContaining("Alpha")).containsExactly(alphaId, alphabetId);
+        assertThat(ngramIndex.findContaining("gBe")).containsExactly(betaId);
+        assertThat(usernames(contains("Alpha"))).containsExactly("ngAlpha", "ngAlphabet");
+    }
+
+    /**
+     * 색인을 거치지 않고 넣은 행은 like 로는 찾지만 색인(id 목록) 경로로는 못 찾는다
+     */
+    @Test
+    public void containsSearchUsesIndexedIds() {
+        jdbcTemplate.update("insert into users (user_id, username, age) values (next value for users_seq, ?, 0)",
+                "ngAlphaRaw");
+
+        assertThat(usernames(contains("Alpha"))).containsExactly("ngAlpha", "ngAlphabet");
+
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsername("ngAlpha");
+        prefix.setUsernameMatch(UsernameMatch.PREFIX);
+        assertThat(usernames(prefix)).containsExactly("ngAlpha", "ngAlphaRaw", "ngAlphabet");
+    }
+
+    /**
+     * 조각 하나라도 가진 회원이 없으면 DB 에 가지 않는다
+     */
+    @Test
+    @ExpectQueries(selects = 0)
+    public void missingGramSkipsQuery() {
+        assertThat(searchQueries.content(contains("Alqz"))).isEmpty();
+        assertThat(searchQueries.count(contains("Alqz"))).isZero();
+    }
+
+    @Test
+    public void renameMovesPostings() {
+        transaction.executeWithoutResult(status -> em.find(User.class, betaId).setUsername("ngGamma"));
+
+        assertThat(ngramIndex.findContaining("Beta")).isEmpty();
+        assertThat(ngramIndex.findContaining("Gamma")).containsExactly(betaId);
+        assertThat(usernames(contains("Gamma"))).containsExactly("ngGamma");
+    }
+
+    @Test
+    public void deleteRemovesPostings() {
+        transaction.executeWithoutResult(status -> em.remove(em.find(User.class, alphabetId)));
+
+        assertThat(ngramIndex.findContaining("Alpha")).containsExactly(alphaId);
+        assertThat(ngramIndex.findContaining("bet")).isEmpty();
+    }
+
+    @Test
+    public void rollbackIsNotIndexed() {
+        transaction.executeWithoutResult(status -> {
+            em.find(User.class, alphaId).setUsername("ngDelta");
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(ngramIndex.findContaining("Delta")).isEmpty();
+        assertThat(ngramIndex.findContaining("Alpha")).containsExactly(alphaId, alphabetId);
+    }
+
+    @Test
+    public void bulkUpdateIsReindexed() {
+        MemberSearchCondition team = new MemberSearchCondition();
+        team.setTeamName("ngTeam");
+
+        bulkOperations.rename(team, "ngBulk", progress -> {
+        });
+
+        assertThat(ngramIndex.findContaining("Alpha")).isEmpty();
+        assertThat(ngramIndex.findContaining("Bulk")).containsExactly(alphaId, betaId, alphabetId);
+    }
+
+    @Test
+    public void fallsBackToLike() throws InterruptedException {
+        // 3글자 미만
+        assertThat(ngramIndex.findContaining("ng")).isNull();
+        assertThat(usernames(contains("Be"))).contains("ngBeta");
+
+        // 아직 만들어지지 않은 색인
+        UsernameNgramIndex notReady = new UsernameNgramIndex(em, transactionManager, true, 1, 100);
+        assertThat(notReady.findContaining("Alpha")).isNull();
+
+        // 후보가 max-candidates 보다 많다
+        notReady.build();
+        awaitReady(notReady);
+        assertThat(notReady.findContaining("gBeta")).containsExactly(betaId);
+        assertThat(notReady.findContaining("Alpha")).isNull();
+
+        // 이 트랜잭션에 반영 전 변경이 있으면 색인을 쓰지 않는다
+        List<String> found = transaction.execute(status -> {
+            em.persist(new User("ngAlphaNew", 0));
+            em.flush();
+            return usernames(contains("Alpha"));
+        });
+        assertThat(found).containsExactly("ngAlpha", "ngAlphaNew", "ngAlphabet");
+    }
+
+    private Long insertUser(String username) {
+        return transaction.execute(status -> {
+            User user = new User(username, 0, em.getReference(Team.class, teamId));
+            em.persist(user);
+            return user.getId();
+        });
+    }
+
+    private static MemberSearchCondition contains(String username) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameMatch(UsernameMatch.CONTAINS);
+        return condition;
+    }
+
+    private List<String> usernames(MemberSearchCondition condition) {
+        return searchQueries.content(condition).stream()
+                .map(MemberTeamDto::getUsername)
+                .sorted()
+                .toList();
+    }
+
+    private static void awaitReady(UsernameNgramIndex index) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!index.isReady()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("n-gram index was not built");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package querydsl.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메서드 본문(@BeforeEach 제외)에서 실행된 쿼리 수 검증
+ * 조회(select) 수를 정확히(selects) 또는 최대(maxSelects)로 검사하고,
+ * 페치 조인 없이 지연 로딩(User.team 프록시 초기화, 컬렉션 초기화)이 일어나면 실패시킨다.
+ * 전체 SQL 수(statements, maxStatements)는 insert, update, delete, 시퀀스 조회까지 센다.
+ * (Hibernate 가 문장을 준비한 횟수라 JDBC 배치로 묶인 같은 insert 는 배치마다 한 번)
+ * 값이 -1 이면 검사하지 않는다. insert, update 와 시퀀스 조회는 select 로 세지 않는다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryCountExtension.class)
+public @interface ExpectQueries {
+
+    int selects() default -1;
+
+    int maxSelects() default -1;
+
+    int statements() default -1;
+
+    int maxStatements() default -1;
+
+    boolean allowLazyLoading() default false;
+}
@@ -0,0 +1,64 @@
+package querydsl.support;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 지연 로딩 기록
+ * 프록시 초기화는 IMMEDIATE_LOAD 로드 이벤트로, 컬렉션 초기화는 InitializeCollection 이벤트로 들어온다.
+ * 기록하는 중인 스레드의 것만 "엔티티#id", "컬렉션 역할" 형태로 남긴다.
+ */
+class LazyLoadRecorder implements LoadEventListener, InitializeCollectionEventListener {
+
+    private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+    private static final Map<SessionFactoryImplementor, Boolean> REGISTERED =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    static void registerTo(EntityManagerFactory emf) {
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        if (REGISTERED.putIfAbsent(sessionFactory, Boolean.TRUE) == null) {
+            LazyLoadRecorder recorder = new LazyLoadRecorder();
+            EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+            registry.prependListeners(EventType.LOAD, recorder);
+            registry.prependListeners(EventType.INIT_COLLECTION, recorder);
+        }
+    }
+
+    static void start() {
+        RECORDED.set(new ArrayList<>());
+    }
+
+    static List<String> stop() {
+        List<String> recorded = RECORDED.get();
+        RECORDED.remove();
+        return recorded != null ? recorded : List.of();
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) {
+        List<String> recorded = RECORDED.get();
+        if (recorded != null && loadType == LoadEventListener.IMMEDIATE_LOAD) {
+            recorded.add(event.getEntityClassName() + "#" + event.getEntityId());
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) {
+        List<String> recorded = RECORDED.get();
+        if (recorded != null) {
+            recorded.add(event.getCollection().getRole());
+        }
+    }
+}
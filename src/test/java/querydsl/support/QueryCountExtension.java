@@ -0,0 +1,58 @@
+package querydsl.support;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import querydsl.metrics.QueryCounter;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @ExpectQueries 를 처리하는 확장
+ * SQL 수는 애플리케이션의 QueryCounter(StatementInspector)로, 지연 로딩은 LazyLoadRecorder 로 센다. 둘 다 테스트 스레드 기준이다.
+ */
+public class QueryCountExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(QueryCountExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        EntityManagerFactory emf = SpringExtension.getApplicationContext(context).getBean(EntityManagerFactory.class);
+        LazyLoadRecorder.registerTo(emf);
+        LazyLoadRecorder.start();
+        context.getStore(NAMESPACE).put("selects", QueryCounter.selects());
+        context.getStore(NAMESPACE).put("statements", QueryCounter.statements());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        long selects = QueryCounter.selects() - context.getStore(NAMESPACE).remove("selects", Long.class);
+        long statements = QueryCounter.statements() - context.getStore(NAMESPACE).remove("statements", Long.class);
+        List<String> lazyLoads = LazyLoadRecorder.stop();
+        if (context.getExecutionException().isPresent()) {
+            return; // 원래 실패를 가리지 않는다
+        }
+
+        ExpectQueries expect = context.getRequiredTestMethod().getAnnotation(ExpectQueries.class);
+        if (expect.selects() >= 0) {
+            assertThat(selects).as("실행된 select 수").isEqualTo(expect.selects());
+        }
+        if (expect.maxSelects() >= 0) {
+            assertThat(selects).as("실행된 select 수").isLessThanOrEqualTo(expect.maxSelects());
+        }
+        if (expect.statements() >= 0) {
+            assertThat(statements).as("실행된 SQL 수").isEqualTo(expect.statements());
+        }
+        if (expect.maxStatements() >= 0) {
+            assertThat(statements).as("실행된 SQL 수").isLessThanOrEqualTo(expect.maxStatements());
+        }
+        if (!expect.allowLazyLoading()) {
+            assertThat(lazyLoads).as("페치 조인 없이 지연 로딩됨").isEmpty();
+        }
+    }
+}